@@ -0,0 +1,80 @@
+package net.no_mad.tts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up utterances in the audio cache, which the module does for every
+ * segment it queues while the cache is enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AudioCacheBenchmark {
+
+    @Param({ "100", "1000" })
+    public int entries;
+
+    private File directory;
+    private AudioCache cache;
+    private String[] keys;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("tts-cache").toFile();
+        byte[] wav = new byte[1024];
+        wav[0] = 'R';
+        wav[1] = 'I';
+        wav[2] = 'F';
+        wav[3] = 'F';
+        cache = new AudioCache(directory, Long.MAX_VALUE);
+        keys = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = AudioCache.key("Utterance number " + i, "com.google.android.tts", "en-us-x-sfg-local", "en-US", 1.0f, 1.0f);
+            FileOutputStream stream = new FileOutputStream(cache.begin(keys[i]));
+            try {
+                stream.write(wav);
+            } finally {
+                stream.close();
+            }
+            cache.commit(keys[i], null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.clear();
+        directory.delete();
+    }
+
+    @Benchmark
+    public String key() {
+        return AudioCache.key("Utterance number " + (next++ % entries), "com.google.android.tts", "en-us-x-sfg-local", "en-US", 1.0f, 1.0f);
+    }
+
+    @Benchmark
+    public File hit() {
+        return cache.get(keys[next++ % entries]);
+    }
+}
@@ -0,0 +1,56 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.Promise;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** A promise the caller waits on for the module to settle it. */
+class BlockingPromise implements Promise {
+
+    private static final long TIMEOUT = 10000;
+
+    private final CountDownLatch settled = new CountDownLatch(1);
+    private volatile Object value;
+    private volatile String code;
+    private volatile String message;
+
+    /** Returns the value the promise was resolved with, throws if it was rejected or not settled in time. */
+    Object get() throws InterruptedException {
+        if (!settled.await(TIMEOUT, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("The promise was not settled within " + TIMEOUT + " ms");
+        }
+        if (code != null) {
+            throw new IllegalStateException("The promise was rejected with " + code + ": " + message);
+        }
+        return value;
+    }
+
+    @Override
+    public void resolve(Object value) {
+        this.value = value;
+        settled.countDown();
+    }
+
+    @Override
+    public void reject(String code, String message) {
+        this.code = code;
+        this.message = message;
+        settled.countDown();
+    }
+
+    @Override
+    public void reject(String code, Throwable throwable) {
+        reject(code, throwable.getMessage());
+    }
+
+    @Override
+    public void reject(String code, String message, Throwable throwable) {
+        reject(code, message);
+    }
+
+    @Override
+    public void reject(String message) {
+        reject("error", message);
+    }
+}
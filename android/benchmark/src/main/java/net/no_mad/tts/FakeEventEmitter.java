@@ -0,0 +1,63 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Stands in for the JS side of the event emitter. It counts the events by name and,
+ * if asked to, keeps them so that they can be looked at afterwards.
+ */
+class FakeEventEmitter implements DeviceEventManagerModule.RCTDeviceEventEmitter {
+
+    private final HashMap<String, Integer> counts = new HashMap<String, Integer>();
+    private final ArrayList<String> events = new ArrayList<String>();
+    private boolean recording = false;
+
+    @Override
+    public synchronized void emit(String eventName, Object data) {
+        Integer count = counts.get(eventName);
+        counts.put(eventName, count != null ? count + 1 : 1);
+        if (recording) {
+            String utteranceId = data instanceof ReadableMap && ((ReadableMap) data).hasKey("utteranceId")
+                    ? ((ReadableMap) data).getString("utteranceId") : null;
+            events.add(utteranceId != null ? eventName + " " + utteranceId : eventName);
+        }
+        notifyAll();
+    }
+
+    /** Keeps every event emitted from now on, as its name followed by its utterance id if it has one. */
+    synchronized void record() {
+        recording = true;
+    }
+
+    synchronized List<String> getEvents() {
+        return new ArrayList<String>(events);
+    }
+
+    synchronized int count(String eventName) {
+        Integer count = counts.get(eventName);
+        return count != null ? count : 0;
+    }
+
+    /** Waits until count events of the name were emitted, returns false if they were not within the timeout. */
+    synchronized boolean await(String eventName, int count, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (count(eventName) < count) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    synchronized void clear() {
+        counts.clear();
+        events.clear();
+    }
+}
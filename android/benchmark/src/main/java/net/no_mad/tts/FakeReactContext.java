@@ -0,0 +1,26 @@
+package net.no_mad.tts;
+
+import android.content.Context;
+
+import com.facebook.react.bridge.JavaScriptModule;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+/** The context of an app without a JS runtime, its events go to a fake emitter. */
+class FakeReactContext extends ReactApplicationContext {
+
+    final FakeEventEmitter emitter = new FakeEventEmitter();
+
+    FakeReactContext() {
+        super(new Context() {
+        });
+    }
+
+    @Override
+    public <T extends JavaScriptModule> T getJSModule(Class<T> jsInterface) {
+        if (jsInterface != DeviceEventManagerModule.RCTDeviceEventEmitter.class) {
+            return super.getJSModule(jsInterface);
+        }
+        return jsInterface.cast(emitter);
+    }
+}
@@ -0,0 +1,60 @@
+package net.no_mad.tts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping the ISO3 codes engines report voices with to ISO2 codes.
+ *
+ * perInstanceTables repeats what every module instance used to do in its constructor
+ * before the tables were shared, lookup is what voices() pays per voice now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocaleCodesBenchmark {
+
+    private static final String[] LANGUAGES = { "eng", "deu", "fra", "spa", "ita", "jpn", "zho", "rus" };
+    private static final String[] COUNTRIES = { "USA", "GBR", "DEU", "FRA", "ESP", "ITA", "JPN", "CHN" };
+
+    private int next = 0;
+
+    @Benchmark
+    public void perInstanceTables(Blackhole blackhole) {
+        Map<String, Locale> countries = new HashMap<String, Locale>();
+        for (String country: Locale.getISOCountries()) {
+            Locale locale = new Locale("", country);
+            countries.put(locale.getISO3Country().toUpperCase(), locale);
+        }
+        Map<String, Locale> languages = new HashMap<String, Locale>();
+        for (String language: Locale.getISOLanguages()) {
+            Locale locale = new Locale(language);
+            languages.put(locale.getISO3Language(), locale);
+        }
+        blackhole.consume(countries);
+        blackhole.consume(languages);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String lookup() {
+        int i = next++ & (LANGUAGES.length - 1);
+        return LocaleCodes.iso3LanguageToIso2(LANGUAGES[i]) + '-' + LocaleCodes.iso3CountryToIso2(COUNTRIES[i]);
+    }
+}
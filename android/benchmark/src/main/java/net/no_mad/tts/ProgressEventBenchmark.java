@@ -0,0 +1,76 @@
+package net.no_mad.tts;
+
+import android.speech.tts.TextToSpeech;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reporting the words of an utterance as "tts-progress" events, from the engine's
+ * onRangeStart() callback through the engine thread and the event dispatcher to the
+ * emitter, in each of the event modes. The score is per word.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProgressEventBenchmark {
+
+    private static final int WORDS = 200;
+
+    @Param({ "immediate", "batch", "latest" })
+    public String mode;
+
+    private TextToSpeechModule module;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        TextToSpeech.synthesisLatency = 0;
+        TextToSpeech.wordDuration = 0;
+        module = new TextToSpeechModule(new FakeReactContext());
+        BlockingPromise init = new BlockingPromise();
+        module.getInitStatus(init);
+        init.get();
+        BlockingPromise options = new BlockingPromise();
+        module.setEventOptions(JavaOnlyMap.of("mode", mode), options);
+        options.get();
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < WORDS; i++) {
+            builder.append(i % 10 == 9 ? "word. " : "word ");
+        }
+        text = builder.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        module.onCatalystInstanceDestroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public Object speak() throws InterruptedException {
+        BlockingPromise spoken = new BlockingPromise();
+        module.speakAndWait(text, new JavaOnlyMap(), spoken);
+        return spoken.get();
+    }
+}
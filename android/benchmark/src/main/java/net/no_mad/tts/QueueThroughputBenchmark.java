@@ -0,0 +1,84 @@
+package net.no_mad.tts;
+
+import android.speech.tts.TextToSpeech;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utterances queued with speakBatch() and spoken to the end by an engine that takes no
+ * time, so that the score is the module's own overhead per utterance: admission,
+ * segmentation, the priority queue, feeding the engine lookAhead segments at a time,
+ * and the start and finish events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueThroughputBenchmark {
+
+    private static final int UTTERANCES = 100;
+
+    @Param({ "1", "2", "4" })
+    public int lookAhead;
+
+    private TextToSpeechModule module;
+    private FakeEventEmitter emitter;
+    private JavaOnlyArray batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        TextToSpeech.synthesisLatency = 0;
+        TextToSpeech.wordDuration = 0;
+        FakeReactContext context = new FakeReactContext();
+        emitter = context.emitter;
+        module = new TextToSpeechModule(context);
+        BlockingPromise init = new BlockingPromise();
+        module.getInitStatus(init);
+        init.get();
+        BlockingPromise options = new BlockingPromise();
+        module.setSegmentationOptions(JavaOnlyMap.of("enabled", true, "lookAhead", lookAhead), options);
+        options.get();
+
+        batch = new JavaOnlyArray();
+        for (int i = 0; i < UTTERANCES; i++) {
+            batch.pushMap(JavaOnlyMap.of("utterance", "Utterance number " + i + ". It has two sentences."));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        module.onCatalystInstanceDestroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UTTERANCES)
+    public void speakBatch() throws InterruptedException {
+        int finished = emitter.count("tts-finish");
+        BlockingPromise queued = new BlockingPromise();
+        module.speakBatch(batch, queued);
+        queued.get();
+        if (!emitter.await("tts-finish", finished + UTTERANCES, 10000)) {
+            throw new IllegalStateException("The utterances were not spoken within 10 s");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding the params of speak() into the priority and the voice settings an utterance
+ * is spoken with, which the module does for every utterance, and again for every segment
+ * it queues. The params are Java maps here, the native maps of the bridge add a JNI call
+ * to every lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpeakParamsBenchmark {
+
+    @Param({ "none", "all" })
+    public String params;
+
+    private final EnginePool.Engine engine = new EnginePool.Engine(null);
+    private ReadableMap map;
+
+    @Setup
+    public void setup() {
+        if (params.equals("none")) {
+            map = new JavaOnlyMap();
+        } else {
+            map = JavaOnlyMap.of(
+                    "priority", "high",
+                    "voice", "en-us-x-sfg-local",
+                    "language", "en-US",
+                    "rate", 0.6,
+                    "pitch", 1.2,
+                    "KEY_PARAM_STREAM", "STREAM_MUSIC",
+                    "KEY_PARAM_VOLUME", 0.8,
+                    "KEY_PARAM_PAN", -0.5);
+        }
+    }
+
+    @Benchmark
+    public int priority() {
+        if (!map.hasKey("priority") || map.isNull("priority")) {
+            return UtteranceQueue.PRIORITY_NORMAL;
+        }
+        return UtteranceQueue.parsePriority(map.getString("priority"));
+    }
+
+    @Benchmark
+    public VoiceSettings voiceSettings() {
+        return VoiceSettings.of(engine, map);
+    }
+}
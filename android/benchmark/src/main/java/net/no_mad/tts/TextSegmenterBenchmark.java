@@ -0,0 +1,62 @@
+package net.no_mad.tts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting texts into segments, which speak() does on the caller's thread before
+ * the first segment is queued, so it adds directly to the time to first audio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextSegmenterBenchmark {
+
+    // the module's default segment length
+    private static final int SEGMENT_LENGTH = 300;
+
+    private static final String[] SENTENCES = {
+        "The quick brown fox jumps over the lazy dog. ",
+        "Dr. Smith arrived at 10 a.m., but the meeting had already started; nobody noticed. ",
+        "Long sentences with many clauses, separated by commas, semicolons and dashes \u2014 like this one \u2014 "
+                + "have to be split at the clause boundaries when they do not fit into a single segment, "
+                + "otherwise the engine would refuse them or cut them off somewhere in the middle of a word. ",
+        "Is it? ",
+        "Yes! ",
+    };
+
+    @Param({ "300", "4000", "40000" })
+    public int length;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder(length + 200);
+        for (int i = 0; builder.length() < length; i++) {
+            builder.append(SENTENCES[i % SENTENCES.length]);
+        }
+        builder.setLength(length);
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public int[] split() {
+        return TextSegmenter.split(text, SEGMENT_LENGTH, Locale.US);
+    }
+}
@@ -0,0 +1,79 @@
+package net.no_mad.tts;
+
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.Voice;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marshalling the engine's voices into the array voices() and queryVoices() resolve
+ * with. The voices are listed from the engine on the first call only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoicesBenchmark {
+
+    private static final Locale[] LOCALES = { Locale.US, Locale.UK, Locale.FRANCE, Locale.GERMANY, Locale.JAPAN, new Locale("es", "ES") };
+
+    @Param({ "50", "500" })
+    public int voices;
+
+    private TextToSpeechModule module;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        ArrayList<Voice> engineVoices = new ArrayList<Voice>();
+        for (int i = 0; i < voices; i++) {
+            Locale locale = LOCALES[i % LOCALES.length];
+            engineVoices.add(new Voice(locale.toLanguageTag().toLowerCase() + "-x-voice" + i + "-local", locale,
+                    Voice.QUALITY_NORMAL, Voice.LATENCY_NORMAL, false, Collections.<String>emptySet()));
+        }
+        TextToSpeech.voices = engineVoices;
+        module = new TextToSpeechModule(new FakeReactContext());
+        BlockingPromise init = new BlockingPromise();
+        module.getInitStatus(init);
+        init.get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        module.onCatalystInstanceDestroy();
+    }
+
+    @Benchmark
+    public Object voices() throws InterruptedException {
+        BlockingPromise promise = new BlockingPromise();
+        module.voices(promise);
+        return promise.get();
+    }
+
+    @Benchmark
+    public Object queryVoices() throws InterruptedException {
+        BlockingPromise promise = new BlockingPromise();
+        module.queryVoices(JavaOnlyMap.of("language", "en-US"), promise);
+        return promise.get();
+    }
+}
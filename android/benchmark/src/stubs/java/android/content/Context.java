@@ -0,0 +1,45 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.media.AudioManager;
+
+import java.io.File;
+
+public abstract class Context {
+
+    public static final String AUDIO_SERVICE = "audio";
+
+    private AudioManager audioManager;
+    private File cacheDir;
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public synchronized Object getSystemService(String name) {
+        if (!AUDIO_SERVICE.equals(name)) {
+            return null;
+        }
+        if (audioManager == null) {
+            audioManager = new AudioManager();
+        }
+        return audioManager;
+    }
+
+    public PackageManager getPackageManager() {
+        return new PackageManager();
+    }
+
+    /** A directory of its own in the temporary directory of the JVM. */
+    public synchronized File getCacheDir() {
+        if (cacheDir == null) {
+            cacheDir = new File(System.getProperty("java.io.tmpdir"), "tts-stubs-" + System.identityHashCode(this));
+            cacheDir.mkdirs();
+        }
+        return cacheDir;
+    }
+
+    public void startActivity(Intent intent) {
+        throw new ActivityNotFoundException("No activity to handle " + intent);
+    }
+}
@@ -0,0 +1,33 @@
+package android.content;
+
+import android.net.Uri;
+
+public class Intent {
+
+    public static final String ACTION_VIEW = "android.intent.action.VIEW";
+
+    private String action;
+    private Uri data;
+
+    public Intent() {
+    }
+
+    public Intent(String action) {
+        this.action = action;
+    }
+
+    public Intent setAction(String action) {
+        this.action = action;
+        return this;
+    }
+
+    public Intent setData(Uri data) {
+        this.data = data;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "Intent { act=" + action + " dat=" + data + " }";
+    }
+}
@@ -0,0 +1,16 @@
+package android.content.pm;
+
+/** No packages are installed, only the system default engine is available. */
+public class PackageManager {
+
+    public static class NameNotFoundException extends Exception {
+
+        public NameNotFoundException(String name) {
+            super(name);
+        }
+    }
+
+    public PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException {
+        throw new NameNotFoundException(packageName);
+    }
+}
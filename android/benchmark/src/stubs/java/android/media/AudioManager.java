@@ -0,0 +1,35 @@
+package android.media;
+
+/** Grants every focus request, no other app ever takes the focus. */
+public class AudioManager {
+
+    public static final int USE_DEFAULT_STREAM_TYPE = Integer.MIN_VALUE;
+    public static final int STREAM_VOICE_CALL = 0;
+    public static final int STREAM_SYSTEM = 1;
+    public static final int STREAM_RING = 2;
+    public static final int STREAM_MUSIC = 3;
+    public static final int STREAM_ALARM = 4;
+    public static final int STREAM_NOTIFICATION = 5;
+    public static final int STREAM_DTMF = 8;
+
+    public static final int AUDIOFOCUS_GAIN = 1;
+    public static final int AUDIOFOCUS_GAIN_TRANSIENT = 2;
+    public static final int AUDIOFOCUS_GAIN_TRANSIENT_MAY_DUCK = 3;
+    public static final int AUDIOFOCUS_LOSS = -1;
+    public static final int AUDIOFOCUS_LOSS_TRANSIENT = -2;
+    public static final int AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK = -3;
+    public static final int AUDIOFOCUS_REQUEST_FAILED = 0;
+    public static final int AUDIOFOCUS_REQUEST_GRANTED = 1;
+
+    public interface OnAudioFocusChangeListener {
+        void onAudioFocusChange(int focusChange);
+    }
+
+    public int requestAudioFocus(OnAudioFocusChangeListener listener, int streamType, int durationHint) {
+        return AUDIOFOCUS_REQUEST_GRANTED;
+    }
+
+    public int abandonAudioFocus(OnAudioFocusChangeListener listener) {
+        return AUDIOFOCUS_REQUEST_GRANTED;
+    }
+}
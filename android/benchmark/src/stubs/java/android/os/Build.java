@@ -0,0 +1,16 @@
+package android.os;
+
+public class Build {
+
+    public static class VERSION {
+        /** The module takes its newest code paths, those of Android 13. */
+        public static final int SDK_INT = 33;
+    }
+
+    public static class VERSION_CODES {
+        public static final int LOLLIPOP = 21;
+        public static final int M = 23;
+        public static final int O = 26;
+        public static final int TIRAMISU = 33;
+    }
+}
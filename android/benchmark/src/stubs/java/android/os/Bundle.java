@@ -0,0 +1,46 @@
+package android.os;
+
+import java.util.HashMap;
+
+public final class Bundle {
+
+    private final HashMap<String, Object> values = new HashMap<String, Object>();
+
+    public Bundle() {
+    }
+
+    public Bundle(Bundle bundle) {
+        values.putAll(bundle.values);
+    }
+
+    public void putInt(String key, int value) {
+        values.put(key, value);
+    }
+
+    public void putFloat(String key, float value) {
+        values.put(key, value);
+    }
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public int getInt(String key) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : 0;
+    }
+
+    public float getFloat(String key) {
+        Object value = values.get(key);
+        return value instanceof Float ? (Float) value : 0.0f;
+    }
+
+    public String getString(String key) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+}
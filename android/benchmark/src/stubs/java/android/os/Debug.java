@@ -0,0 +1,13 @@
+package android.os;
+
+public final class Debug {
+
+    private Debug() {
+    }
+
+    /** The JVM heap in use, in kilobytes, rather than the proportional set size of the process. */
+    public static long getPss() {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+    }
+}
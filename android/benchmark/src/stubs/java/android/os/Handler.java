@@ -0,0 +1,38 @@
+package android.os;
+
+/** Posts runnables to the thread of a looper. */
+public class Handler {
+
+    private final Looper looper;
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public Looper getLooper() {
+        return looper;
+    }
+
+    public final boolean post(Runnable r) {
+        return looper.enqueue(this, r, SystemClock.uptimeMillis());
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        return looper.enqueue(this, r, SystemClock.uptimeMillis() + Math.max(0, delayMillis));
+    }
+
+    public final boolean postAtFrontOfQueue(Runnable r) {
+        return looper.enqueue(this, r, Long.MIN_VALUE);
+    }
+
+    public final void removeCallbacks(Runnable r) {
+        if (r != null) {
+            looper.remove(this, r);
+        }
+    }
+
+    /** Only removes all the callbacks, the token has to be null. */
+    public final void removeCallbacksAndMessages(Object token) {
+        looper.remove(this, null);
+    }
+}
@@ -0,0 +1,140 @@
+package android.os;
+
+import java.util.PriorityQueue;
+
+/**
+ * Runs the messages posted by handlers on its thread in the order they are due, as on
+ * Android. A runnable that throws ends the loop and goes to the thread's uncaught
+ * exception handler, the way it crashes the app on a device.
+ */
+public final class Looper {
+
+    private static final ThreadLocal<Looper> current = new ThreadLocal<Looper>();
+    private static Looper mainLooper;
+
+    static final class Message implements Comparable<Message> {
+        final Handler target;
+        final Runnable callback;
+        final long when;
+        final long sequence;
+
+        Message(Handler target, Runnable callback, long when, long sequence) {
+            this.target = target;
+            this.callback = callback;
+            this.when = when;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Message other) {
+            if (when != other.when) {
+                return when < other.when ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final Thread thread;
+    private final PriorityQueue<Message> messages = new PriorityQueue<Message>();
+    private long sequence = 0;
+    private boolean quitting = false;
+
+    private Looper() {
+        thread = Thread.currentThread();
+    }
+
+    public static void prepare() {
+        if (current.get() != null) {
+            throw new RuntimeException("Only one Looper may be created per thread");
+        }
+        current.set(new Looper());
+    }
+
+    public static Looper myLooper() {
+        return current.get();
+    }
+
+    /** The main thread of the app, a daemon thread started on first use. */
+    public static synchronized Looper getMainLooper() {
+        if (mainLooper == null) {
+            HandlerThread main = new HandlerThread("main");
+            main.setDaemon(true);
+            main.start();
+            mainLooper = main.getLooper();
+        }
+        return mainLooper;
+    }
+
+    public static void loop() {
+        Looper looper = myLooper();
+        if (looper == null) {
+            throw new RuntimeException("No Looper; Looper.prepare() wasn't called on this thread.");
+        }
+        Message message;
+        while ((message = looper.next()) != null) {
+            message.callback.run();
+        }
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+
+    public void quit() {
+        synchronized (messages) {
+            quitting = true;
+            messages.clear();
+            messages.notifyAll();
+        }
+    }
+
+    public void quitSafely() {
+        quit();
+    }
+
+    boolean enqueue(Handler target, Runnable callback, long when) {
+        synchronized (messages) {
+            if (quitting) {
+                return false;
+            }
+            messages.add(new Message(target, callback, when, sequence++));
+            messages.notifyAll();
+            return true;
+        }
+    }
+
+    // removes the messages of the handler with the callback, or all of them for null
+    void remove(Handler target, Runnable callback) {
+        synchronized (messages) {
+            java.util.Iterator<Message> iterator = messages.iterator();
+            while (iterator.hasNext()) {
+                Message message = iterator.next();
+                if (message.target == target && (callback == null || message.callback == callback)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private Message next() {
+        synchronized (messages) {
+            while (!quitting) {
+                Message first = messages.peek();
+                long now = SystemClock.uptimeMillis();
+                if (first != null && first.when <= now) {
+                    return messages.poll();
+                }
+                try {
+                    if (first == null) {
+                        messages.wait();
+                    } else {
+                        messages.wait(first.when - now);
+                    }
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+}
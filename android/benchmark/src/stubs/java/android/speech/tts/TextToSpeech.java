@@ -0,0 +1,435 @@
+package android.speech.tts;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A fake engine that speaks silence. Requests are handled one at a time on a thread of
+ * the instance, with the callbacks an engine service makes: onStart(), onRangeStart()
+ * for every word, then onDone(), or onStop() for the requests that stop() drops.
+ *
+ * How long it takes is set with the static fields below, which are not part of the
+ * Android API. They apply to the instances created after they are set.
+ */
+public class TextToSpeech {
+
+    public static final int SUCCESS = 0;
+    public static final int ERROR = -1;
+    public static final int STOPPED = -2;
+    public static final int ERROR_SYNTHESIS = -3;
+    public static final int ERROR_SERVICE = -4;
+    public static final int ERROR_OUTPUT = -5;
+    public static final int ERROR_NETWORK = -6;
+    public static final int ERROR_NETWORK_TIMEOUT = -7;
+    public static final int ERROR_INVALID_REQUEST = -8;
+    public static final int ERROR_NOT_INSTALLED_YET = -9;
+
+    public static final int LANG_COUNTRY_VAR_AVAILABLE = 2;
+    public static final int LANG_COUNTRY_AVAILABLE = 1;
+    public static final int LANG_AVAILABLE = 0;
+    public static final int LANG_MISSING_DATA = -1;
+    public static final int LANG_NOT_SUPPORTED = -2;
+
+    public static final int QUEUE_FLUSH = 0;
+    public static final int QUEUE_ADD = 1;
+
+    public interface OnInitListener {
+        void onInit(int status);
+    }
+
+    public static class EngineInfo {
+        public String name;
+        public String label;
+        public int icon;
+    }
+
+    public static class Engine {
+        public static final String ACTION_INSTALL_TTS_DATA = "android.speech.tts.engine.INSTALL_TTS_DATA";
+        public static final String KEY_PARAM_STREAM = "streamType";
+        public static final String KEY_PARAM_UTTERANCE_ID = "utteranceId";
+        public static final String KEY_PARAM_VOLUME = "volume";
+        public static final String KEY_PARAM_PAN = "pan";
+        public static final String KEY_FEATURE_NETWORK_SYNTHESIS = "networkTts";
+        public static final String KEY_FEATURE_EMBEDDED_SYNTHESIS = "embeddedTts";
+        public static final String KEY_FEATURE_NOT_INSTALLED = "notInstalled";
+    }
+
+    /** Package name of the fake engine, the only one installed. */
+    public static final String ENGINE_NAME = "net.no_mad.tts.fake";
+
+    /** Milliseconds from creating an instance to its onInit(). */
+    public static volatile long initLatency = 0;
+    /** Milliseconds a request is synthesized for before it starts playing. */
+    public static volatile long synthesisLatency = 0;
+    /** Milliseconds every word plays for, and the audio rendered to files lasts. */
+    public static volatile long wordDuration = 0;
+    /** Spoken requests with this in their text fail once started, null for none to fail. */
+    public static volatile String failingText = null;
+    /** Texts of the spoken requests that played to the end, by every instance. */
+    public static final List<String> spoken = Collections.synchronizedList(new ArrayList<String>());
+    /** The voices every instance has. */
+    public static volatile List<Voice> voices = Collections.singletonList(
+            new Voice("en-us-x-fake", Locale.US, Voice.QUALITY_NORMAL, Voice.LATENCY_NORMAL, false, Collections.<String>emptySet()));
+
+    // of the files rendered by synthesizeToFile(), 16 bit mono
+    private static final int SAMPLE_RATE = 16000;
+    private static final int WAV_HEADER_SIZE = 44;
+
+    private static final int SPEAK = 0;
+    private static final int PLAY_EARCON = 1;
+    private static final int SYNTHESIZE = 2;
+
+    private static class Request {
+        final int kind;
+        final String text;
+        final File file;
+        final String utteranceId;
+        boolean stopped = false;
+
+        Request(int kind, String text, File file, String utteranceId) {
+            this.kind = kind;
+            this.text = text;
+            this.file = file;
+            this.utteranceId = utteranceId;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Request> requests = new ArrayDeque<Request>();
+    private final HashMap<String, File> earcons = new HashMap<String, File>();
+    private final List<Voice> instanceVoices = voices;
+    private final long instanceSynthesisLatency = synthesisLatency;
+    private final long instanceWordDuration = wordDuration;
+    private Request current = null;
+    private boolean shutdown = false;
+    private volatile UtteranceProgressListener listener;
+    private volatile Voice voice;
+    private volatile Locale language = Locale.US;
+
+    public TextToSpeech(Context context, OnInitListener listener) {
+        this(context, listener, null);
+    }
+
+    public TextToSpeech(Context context, final OnInitListener initListener, String engine) {
+        final long latency = initLatency;
+        final int status = engine == null || engine.equals(ENGINE_NAME) ? SUCCESS : ERROR;
+        voice = instanceVoices.isEmpty() ? null : instanceVoices.get(0);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (!await(null, latency)) {
+                    return;
+                }
+                initListener.onInit(status);
+                if (status == SUCCESS) {
+                    work();
+                }
+            }
+        }, "TextToSpeech engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int setOnUtteranceProgressListener(UtteranceProgressListener listener) {
+        this.listener = listener;
+        return SUCCESS;
+    }
+
+    public int speak(CharSequence text, int queueMode, Bundle params, String utteranceId) {
+        return enqueue(new Request(SPEAK, text.toString(), null, utteranceId), queueMode);
+    }
+
+    @Deprecated
+    public int speak(String text, int queueMode, HashMap<String, String> params) {
+        String utteranceId = params != null ? params.get(Engine.KEY_PARAM_UTTERANCE_ID) : null;
+        return enqueue(new Request(SPEAK, text, null, utteranceId), queueMode);
+    }
+
+    public int synthesizeToFile(CharSequence text, Bundle params, File file, String utteranceId) {
+        return enqueue(new Request(SYNTHESIZE, text.toString(), file, utteranceId), QUEUE_ADD);
+    }
+
+    public int addEarcon(String earcon, File file) {
+        synchronized (lock) {
+            earcons.put(earcon, file);
+        }
+        return SUCCESS;
+    }
+
+    public int playEarcon(String earcon, int queueMode, Bundle params, String utteranceId) {
+        File file;
+        synchronized (lock) {
+            file = earcons.get(earcon);
+        }
+        if (file == null) {
+            return ERROR;
+        }
+        return enqueue(new Request(PLAY_EARCON, null, file, utteranceId), queueMode);
+    }
+
+    /** Drops the request being spoken and those queued, reporting them with onStop(). */
+    public int stop() {
+        ArrayList<Request> stopped = new ArrayList<Request>();
+        boolean interrupted;
+        synchronized (lock) {
+            interrupted = current != null;
+            if (current != null) {
+                stopped.add(current);
+            }
+            stopped.addAll(requests);
+            requests.clear();
+            for (Request request: stopped) {
+                request.stopped = true;
+            }
+            current = null;
+            lock.notifyAll();
+        }
+        UtteranceProgressListener listener = this.listener;
+        for (int i = 0; i < stopped.size() && listener != null; i++) {
+            listener.onStop(stopped.get(i).utteranceId, interrupted && i == 0);
+        }
+        return SUCCESS;
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            requests.clear();
+            if (current != null) {
+                current.stopped = true;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    public boolean isSpeaking() {
+        synchronized (lock) {
+            return current != null || !requests.isEmpty();
+        }
+    }
+
+    public static int getMaxSpeechInputLength() {
+        return 4000;
+    }
+
+    public int setLanguage(Locale locale) {
+        language = locale;
+        return LANG_COUNTRY_AVAILABLE;
+    }
+
+    public Locale getLanguage() {
+        return language;
+    }
+
+    public int isLanguageAvailable(Locale locale) {
+        return LANG_COUNTRY_AVAILABLE;
+    }
+
+    public int setVoice(Voice voice) {
+        this.voice = voice;
+        return SUCCESS;
+    }
+
+    public Voice getVoice() {
+        return voice;
+    }
+
+    public Voice getDefaultVoice() {
+        return instanceVoices.isEmpty() ? null : instanceVoices.get(0);
+    }
+
+    public Set<Voice> getVoices() {
+        return new HashSet<Voice>(instanceVoices);
+    }
+
+    public int setSpeechRate(float speechRate) {
+        return SUCCESS;
+    }
+
+    public int setPitch(float pitch) {
+        return SUCCESS;
+    }
+
+    public String getDefaultEngine() {
+        return ENGINE_NAME;
+    }
+
+    public List<EngineInfo> getEngines() {
+        EngineInfo engine = new EngineInfo();
+        engine.name = ENGINE_NAME;
+        engine.label = "Fake engine";
+        return Collections.singletonList(engine);
+    }
+
+    private int enqueue(Request request, int queueMode) {
+        if (queueMode == QUEUE_FLUSH) {
+            stop();
+        }
+        synchronized (lock) {
+            if (shutdown) {
+                return ERROR;
+            }
+            requests.add(request);
+            lock.notifyAll();
+        }
+        return SUCCESS;
+    }
+
+    private void work() {
+        while (true) {
+            Request request;
+            synchronized (lock) {
+                while (requests.isEmpty() && !shutdown) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (shutdown) {
+                    return;
+                }
+                request = requests.poll();
+                current = request;
+            }
+            handle(request);
+        }
+    }
+
+    private void handle(Request request) {
+        UtteranceProgressListener listener = this.listener;
+        if (!await(request, instanceSynthesisLatency)) {
+            return;
+        }
+        if (listener != null) {
+            listener.onStart(request.utteranceId);
+        }
+        String failingText = TextToSpeech.failingText;
+        if (request.kind == SPEAK && failingText != null && request.text.contains(failingText)) {
+            if (finish(request) && listener != null) {
+                listener.onError(request.utteranceId, ERROR_SYNTHESIS);
+            }
+            return;
+        }
+        if (request.kind == PLAY_EARCON) {
+            long frames = Math.max(0, request.file.length() - WAV_HEADER_SIZE) / 2;
+            if (!await(request, frames * 1000 / SAMPLE_RATE)) {
+                return;
+            }
+        } else {
+            int[] words = words(request.text);
+            int framesPerWord = (int) Math.max(1, instanceWordDuration * SAMPLE_RATE / 1000);
+            for (int i = 0; i < words.length; i += 2) {
+                if (listener != null) {
+                    listener.onRangeStart(request.utteranceId, words[i], words[i + 1], i / 2 * framesPerWord);
+                }
+                if (request.kind == SPEAK && !await(request, instanceWordDuration)) {
+                    return;
+                }
+            }
+            if (request.kind == SYNTHESIZE && !write(request.file, words.length / 2 * framesPerWord)) {
+                finish(request);
+                if (listener != null) {
+                    listener.onError(request.utteranceId, ERROR_OUTPUT);
+                }
+                return;
+            }
+        }
+        if (!finish(request)) {
+            return;
+        }
+        if (request.kind == SPEAK) {
+            spoken.add(request.text);
+        }
+        if (listener != null) {
+            listener.onDone(request.utteranceId);
+        }
+    }
+
+    // waits for the time to pass, returns false if the request was stopped meanwhile
+    private boolean await(Request request, long millis) {
+        long deadline = System.nanoTime() / 1000000 + millis;
+        synchronized (lock) {
+            while (!shutdown && (request == null || !request.stopped)) {
+                long remaining = deadline - System.nanoTime() / 1000000;
+                if (remaining <= 0) {
+                    return true;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    // returns false if the request was stopped, stop() reported it then
+    private boolean finish(Request request) {
+        synchronized (lock) {
+            if (request.stopped) {
+                return false;
+            }
+            current = null;
+            return true;
+        }
+    }
+
+    // start and end of every word of the text
+    private static int[] words(String text) {
+        ArrayList<Integer> bounds = new ArrayList<Integer>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean space = i == text.length() || Character.isWhitespace(text.charAt(i));
+            if (start == -1 && !space) {
+                start = i;
+            } else if (start != -1 && space) {
+                bounds.add(start);
+                bounds.add(i);
+                start = -1;
+            }
+        }
+        int[] words = new int[bounds.size()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = bounds.get(i);
+        }
+        return words;
+    }
+
+    private static boolean write(File file, int frames) {
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' }).putInt(36 + frames * 2);
+        header.put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' }).putInt(16);
+        header.putShort((short) 1).putShort((short) 1).putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * 2);
+        header.putShort((short) 2).putShort((short) 16);
+        header.put(new byte[] { 'd', 'a', 't', 'a' }).putInt(frames * 2);
+        try {
+            OutputStream stream = new FileOutputStream(file);
+            try {
+                stream.write(header.array());
+                stream.write(new byte[frames * 2]);
+            } finally {
+                stream.close();
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package android.util;
+
+public class Base64 {
+
+    public static final int DEFAULT = 0;
+    public static final int NO_WRAP = 2;
+
+    /** Always without line breaks, as with NO_WRAP. */
+    public static String encodeToString(byte[] input, int offset, int len, int flags) {
+        byte[] bytes = new byte[len];
+        System.arraycopy(input, offset, bytes, 0, len);
+        return java.util.Base64.getEncoder().encodeToString(bytes);
+    }
+
+    public static String encodeToString(byte[] input, int flags) {
+        return encodeToString(input, 0, input.length, flags);
+    }
+}
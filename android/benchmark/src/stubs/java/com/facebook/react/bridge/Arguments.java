@@ -0,0 +1,13 @@
+package com.facebook.react.bridge;
+
+/** Creates maps and arrays held in Java, the native ones need the JS runtime. */
+public class Arguments {
+
+    public static WritableMap createMap() {
+        return new JavaOnlyMap();
+    }
+
+    public static WritableArray createArray() {
+        return new JavaOnlyArray();
+    }
+}
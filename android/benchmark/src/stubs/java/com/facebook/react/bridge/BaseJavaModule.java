@@ -0,0 +1,17 @@
+package com.facebook.react.bridge;
+
+public abstract class BaseJavaModule implements NativeModule {
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public void invalidate() {
+        onCatalystInstanceDestroy();
+    }
+
+    @Deprecated
+    public void onCatalystInstanceDestroy() {
+    }
+}
@@ -0,0 +1,10 @@
+package com.facebook.react.bridge;
+
+public interface LifecycleEventListener {
+
+    void onHostResume();
+
+    void onHostPause();
+
+    void onHostDestroy();
+}
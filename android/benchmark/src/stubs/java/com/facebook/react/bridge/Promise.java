@@ -0,0 +1,15 @@
+package com.facebook.react.bridge;
+
+public interface Promise {
+
+    void resolve(Object value);
+
+    void reject(String code, String message);
+
+    void reject(String code, Throwable throwable);
+
+    void reject(String code, String message, Throwable throwable);
+
+    @Deprecated
+    void reject(String message);
+}
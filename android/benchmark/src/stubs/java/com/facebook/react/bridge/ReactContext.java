@@ -0,0 +1,43 @@
+package com.facebook.react.bridge;
+
+import android.content.Context;
+
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/** Without a JS runtime, getJSModule() is for subclasses to provide. */
+public class ReactContext extends Context {
+
+    private final CopyOnWriteArraySet<LifecycleEventListener> lifecycleEventListeners =
+            new CopyOnWriteArraySet<LifecycleEventListener>();
+
+    public ReactContext(Context base) {
+    }
+
+    public <T extends JavaScriptModule> T getJSModule(Class<T> jsInterface) {
+        throw new IllegalStateException("No JS module " + jsInterface.getName() + " without a JS runtime");
+    }
+
+    public boolean hasActiveCatalystInstance() {
+        return true;
+    }
+
+    public void addLifecycleEventListener(LifecycleEventListener listener) {
+        lifecycleEventListeners.add(listener);
+    }
+
+    public void removeLifecycleEventListener(LifecycleEventListener listener) {
+        lifecycleEventListeners.remove(listener);
+    }
+
+    public void onHostResume() {
+        for (LifecycleEventListener listener: lifecycleEventListeners) {
+            listener.onHostResume();
+        }
+    }
+
+    public void onHostPause() {
+        for (LifecycleEventListener listener: lifecycleEventListeners) {
+            listener.onHostPause();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.facebook.react.bridge;
+
+import android.app.Activity;
+
+public abstract class ReactContextBaseJavaModule extends BaseJavaModule {
+
+    private final ReactApplicationContext reactApplicationContext;
+
+    public ReactContextBaseJavaModule() {
+        this(null);
+    }
+
+    public ReactContextBaseJavaModule(ReactApplicationContext reactContext) {
+        reactApplicationContext = reactContext;
+    }
+
+    protected final ReactApplicationContext getReactApplicationContext() {
+        return reactApplicationContext;
+    }
+
+    /** There is no activity without an app. */
+    protected final Activity getCurrentActivity() {
+        return null;
+    }
+}
@@ -0,0 +1,55 @@
+package net.no_mad.tts;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TextNormalizerTest {
+
+    @Test
+    public void backReferencesOfLaterRulesReferToTheirOwnGroups() {
+        TextNormalizer normalizer = normalizer(false,
+                new String[] { "(\\d+)%", "$1 percent" },
+                new String[] { "\\b(\\w+) \\1\\b", "$1" });
+
+        assertEquals("50 percent, said so", normalizer.normalize("50%, said said so").text);
+    }
+
+    @Test
+    public void digitsAfterABackReferenceStayLiteral() {
+        TextNormalizer normalizer = normalizer(false,
+                new String[] { "(a)(b)(c)(d)(e)(f)(g)(h)(i)(j)", "letters" },
+                new String[] { "(x)\\10", "x ten" });
+
+        assertEquals("x ten", normalizer.normalize("xx0").text);
+    }
+
+    @Test
+    public void inlineFlagsOnlyApplyToTheirRule() {
+        TextNormalizer normalizer = normalizer(false,
+                new String[] { "(?i)km", "kilometers" },
+                new String[] { "kg", "kilograms" });
+
+        assertEquals("kilometers KG", normalizer.normalize("KM KG").text);
+    }
+
+    @Test
+    public void rulesWithTheCommentsFlagAreRejected() {
+        try {
+            normalizer(false, new String[] { "(?x) k m # kilometers", "kilometers" });
+            fail("The rule was accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static TextNormalizer normalizer(boolean ignoreCase, String[]... rules) {
+        List<String[]> list = Arrays.asList(rules);
+        return new TextNormalizer(Collections.<String, String>emptyMap(), list, ignoreCase, TextNormalizer.DEFAULT_MEMO_SIZE);
+    }
+}
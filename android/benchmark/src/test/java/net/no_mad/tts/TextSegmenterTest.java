@@ -0,0 +1,32 @@
+package net.no_mad.tts;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class TextSegmenterTest {
+
+    @Test
+    public void splitsAtClausesThatFit() {
+        String text = "One, two three four.";
+
+        assertArrayEquals(new int[] { 0, 4, 9, 15, 20 }, TextSegmenter.split(text, 10, Locale.US));
+    }
+
+    @Test
+    public void keepsSurrogatePairsWhole() {
+        // an emoji is a surrogate pair of two chars
+        String text = "a\uD83D\uDE00b";
+
+        assertArrayEquals(new int[] { 0, 1, 3, 4 }, TextSegmenter.split(text, 2, Locale.US));
+    }
+
+    @Test
+    public void keepsSurrogatePairsLongerThanTheLimitWhole() {
+        String text = "a\uD83D\uDE00b\uD83D\uDE00";
+
+        assertArrayEquals(new int[] { 0, 1, 3, 4, 6 }, TextSegmenter.split(text, 1, Locale.US));
+    }
+}
@@ -0,0 +1,218 @@
+package net.no_mad.tts;
+
+import android.speech.tts.TextToSpeech;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Runs the module against the fake engine, which speaks every word for a few milliseconds. */
+public class TextToSpeechModuleTest {
+
+    private static final long TIMEOUT = 10000;
+
+    // four segments of a sentence each
+    private static final String TEXT = "The first sentence is here. The second one follows. "
+            + "Then comes the third one. And the fourth ends it.";
+
+    private final List<Throwable> crashes = Collections.synchronizedList(new ArrayList<Throwable>());
+    private Thread.UncaughtExceptionHandler defaultHandler;
+    private FakeReactContext context;
+    private TextToSpeechModule module;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        // an exception on the engine thread ends its looper, as it crashes the app on a device
+        defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable e) {
+                crashes.add(e);
+            }
+        });
+        TextToSpeech.synthesisLatency = 0;
+        TextToSpeech.wordDuration = 5;
+        context = new FakeReactContext();
+        context.emitter.record();
+        module = new TextToSpeechModule(context);
+        BlockingPromise init = new BlockingPromise();
+        module.getInitStatus(init);
+        init.get();
+    }
+
+    @After
+    public void tearDown() {
+        module.onCatalystInstanceDestroy();
+        Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+        TextToSpeech.wordDuration = 0;
+        TextToSpeech.failingText = null;
+        TextToSpeech.spoken.clear();
+        assertEquals(Collections.<Throwable>emptyList(), crashes);
+    }
+
+    @Test
+    public void nothingToPauseOnceSpokenWithLookAheadOfOne() throws InterruptedException {
+        setSegmentation(1);
+
+        Object utteranceId = speakAndWait(TEXT);
+
+        assertEquals(Boolean.FALSE, pause());
+        assertEquals(1, count("tts-finish " + utteranceId));
+    }
+
+    @Test
+    public void pauseAndResumeWithLookAheadOfOne() throws InterruptedException {
+        setSegmentation(1);
+
+        BlockingPromise spoken = new BlockingPromise();
+        module.speakAndWait(TEXT, new JavaOnlyMap(), spoken);
+        // within the second segment, once the first one is done
+        assertTrue(context.emitter.await("tts-progress", 7, TIMEOUT));
+        assertEquals(Boolean.TRUE, pause());
+        assertEquals(Boolean.TRUE, resume());
+        Object utteranceId = spoken.get();
+
+        assertEquals(Boolean.FALSE, pause());
+        assertEquals(1, count("tts-pause " + utteranceId));
+        assertEquals(1, count("tts-resume " + utteranceId));
+        assertEquals(1, count("tts-finish " + utteranceId));
+    }
+
+    @Test
+    public void segmentsAfterAFailedOneAreNotSpoken() throws InterruptedException {
+        setSegmentation(4);
+        TextToSpeech.failingText = "second";
+
+        BlockingPromise promise = new BlockingPromise();
+        module.speak(TEXT, new JavaOnlyMap(), promise);
+        Object failedId = promise.get();
+        speakAndWait("And then another one.");
+
+        assertEquals(1, count("tts-error " + failedId));
+        assertEquals(Arrays.asList("The first sentence is here. ", "And then another one."), TextToSpeech.spoken);
+    }
+
+    @Test
+    public void batchWithAnItemWithoutUtteranceIsNotSpoken() throws InterruptedException {
+        BlockingPromise promise = new BlockingPromise();
+        module.speakBatch(JavaOnlyArray.of(
+                JavaOnlyMap.of("utterance", "The first one."),
+                JavaOnlyMap.of("params", new JavaOnlyMap())), promise);
+
+        try {
+            promise.get();
+            fail("The batch was accepted");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("invalid_request"));
+        }
+        assertEquals(0, context.emitter.count("tts-start"));
+    }
+
+    @Test
+    public void progressOfPreRenderedSegments() throws InterruptedException {
+        setSegmentation(1);
+        BlockingPromise promise = new BlockingPromise();
+        module.setPreRenderOptions(JavaOnlyMap.of("enabled", true), promise);
+        promise.get();
+
+        Object utteranceId = speakAndWait(TEXT);
+
+        assertEquals(TEXT.split(" ").length, count("tts-progress " + utteranceId));
+    }
+
+    @Test
+    public void wordTimingsOfTextSpokenWithOtherSegmentation() throws InterruptedException {
+        setSegmentation(1);
+        enableCache();
+        speakAndWait(TEXT);
+        BlockingPromise promise = new BlockingPromise();
+        module.setSegmentationOptions(JavaOnlyMap.of("enabled", false), promise);
+        promise.get();
+
+        promise = new BlockingPromise();
+        module.getWordTimings(TEXT, new JavaOnlyMap(), promise);
+        ReadableMap timings = (ReadableMap) promise.get();
+
+        assertEquals(TEXT.split(" ").length, timings.getArray("ranges").size());
+    }
+
+    @Test
+    public void segmentsAreCachedWhenTheTextIsRendered() throws InterruptedException {
+        setSegmentation(1);
+        enableCache();
+        speakAndWait(TEXT);
+        List<File> segments = segmentsFiles();
+        assertEquals(1, segments.size());
+        segments.get(0).delete();
+
+        // played from the cache
+        speakAndWait(TEXT);
+
+        assertEquals(Collections.<File>emptyList(), segmentsFiles());
+    }
+
+    private void enableCache() throws InterruptedException {
+        BlockingPromise promise = new BlockingPromise();
+        module.setCacheOptions(JavaOnlyMap.of("enabled", true), promise);
+        promise.get();
+        promise = new BlockingPromise();
+        module.clearCache(promise);
+        promise.get();
+    }
+
+    private List<File> segmentsFiles() {
+        List<File> found = new ArrayList<File>();
+        File[] directories = context.getCacheDir().listFiles();
+        for (File directory: directories != null ? directories : new File[0]) {
+            File[] files = directory.listFiles();
+            for (File file: files != null ? files : new File[0]) {
+                if (file.getName().endsWith(".segments")) {
+                    found.add(file);
+                }
+            }
+        }
+        return found;
+    }
+
+    private void setSegmentation(int lookAhead) throws InterruptedException {
+        BlockingPromise promise = new BlockingPromise();
+        module.setSegmentationOptions(JavaOnlyMap.of("enabled", true, "segmentLength", 30, "lookAhead", lookAhead), promise);
+        promise.get();
+    }
+
+    private Object speakAndWait(String text) throws InterruptedException {
+        BlockingPromise promise = new BlockingPromise();
+        module.speakAndWait(text, new JavaOnlyMap(), promise);
+        return promise.get();
+    }
+
+    private Object pause() throws InterruptedException {
+        BlockingPromise promise = new BlockingPromise();
+        module.pause(promise);
+        return promise.get();
+    }
+
+    private Object resume() throws InterruptedException {
+        BlockingPromise promise = new BlockingPromise();
+        module.resume(promise);
+        return promise.get();
+    }
+
+    private int count(String event) {
+        return Collections.frequency(context.emitter.getEvents(), event);
+    }
+}
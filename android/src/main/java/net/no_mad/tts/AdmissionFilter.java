@@ -0,0 +1,114 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.List;
+
+/**
+ * Decides whether an utterance is added to the queue, so that bursts of the same
+ * texts do not grow it without bound.
+ *
+ * An utterance with the coalesce key of a waiting one replaces it, and with dedupe
+ * enabled one with the text of a waiting one is merged into it. Neither adds to the
+ * queue. Any other utterance takes a token from a bucket that holds up to burst of
+ * them and is refilled at rate tokens a second, and is dropped if there is none.
+ *
+ * Not thread safe, the module only uses it on its engine thread.
+ */
+class AdmissionFilter {
+
+    static final String COALESCE_KEY = "coalesceKey";
+
+    private boolean dedupe = false;
+    // tokens per second, 0 for no rate limit
+    private double rate = 0;
+    private double burst = 0;
+    private double tokens = 0;
+    private long refilledAt = 0;
+
+    private long dropped = 0;
+    private long merged = 0;
+    private long coalesced = 0;
+
+    void setOptions(boolean dedupe, double rate, double burst, long now) {
+        this.dedupe = dedupe;
+        this.rate = rate;
+        this.burst = burst;
+        tokens = burst;
+        refilledAt = now;
+    }
+
+    /** Returns the waiting utterance the utterance replaces, or null. */
+    Utterance findCoalesced(Utterance utterance, List<Utterance> waiting) {
+        String key = coalesceKey(utterance);
+        if(key == null) {
+            return null;
+        }
+        for(Utterance other: waiting) {
+            if(key.equals(coalesceKey(other))) {
+                coalesced++;
+                return other;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the waiting utterance the utterance is a duplicate of, or null. */
+    Utterance findDuplicate(Utterance utterance, List<Utterance> waiting) {
+        if(!dedupe) {
+            return null;
+        }
+        for(Utterance other: waiting) {
+            // one that was interrupted is only spoken from where it was
+            if(!other.started && other.engine == utterance.engine && other.priority == utterance.priority
+                    && other.text.equals(utterance.text)) {
+                merged++;
+                return other;
+            }
+        }
+        return null;
+    }
+
+    /** Takes a token for an utterance added to the queue, returns false if it is to be dropped. */
+    boolean tryAcquire(long now) {
+        if(rate <= 0) {
+            return true;
+        }
+        tokens = Math.min(burst, tokens + (now - refilledAt) * rate / 1000);
+        refilledAt = now;
+        if(tokens < 1) {
+            dropped++;
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    long getDropped() {
+        return dropped;
+    }
+
+    long getMerged() {
+        return merged;
+    }
+
+    long getCoalesced() {
+        return coalesced;
+    }
+
+    WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("dropped", dropped);
+        stats.putDouble("merged", merged);
+        stats.putDouble("coalesced", coalesced);
+        return stats;
+    }
+
+    private static String coalesceKey(Utterance utterance) {
+        if(!utterance.params.hasKey(COALESCE_KEY) || utterance.params.isNull(COALESCE_KEY)) {
+            return null;
+        }
+        return utterance.params.getString(COALESCE_KEY);
+    }
+}
@@ -0,0 +1,322 @@
+package net.no_mad.tts;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Content-addressed store of synthesized utterances.
+ *
+ * Every entry is a file named after a hash of the text and the voice settings
+ * it was rendered with, and the timing index of its words next to it when the
+ * engine reported them. Entries are kept in access order and the least
+ * recently used ones are deleted once the total size exceeds the limit.
+ *
+ * A text that was split into segments is cached as its segments, the bounds
+ * they were split at are kept under the key of the whole text so that its
+ * timings are found whatever the segmentation options are by then.
+ */
+class AudioCache {
+
+    static final String FILE_EXTENSION = ".wav";
+    private static final String SEGMENTS_EXTENSION = ".segments";
+    private static final int WAV_HEADER_SIZE = 44;
+
+    private final File directory;
+    private final LinkedHashMap<String, File> entries = new LinkedHashMap<String, File>(16, 0.75f, true);
+    private final HashSet<String> pending = new HashSet<String>();
+    private long maxSize;
+    private long size = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    AudioCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        load();
+    }
+
+    static String key(String text, String engine, String voice, String language, float rate, float pitch) {
+        String source = text + '\u0000' + engine + '\u0000' + voice + '\u0000' + language + '\u0000' + rate + '\u0000' + pitch;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(source.getBytes("UTF-8"));
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for(byte b: hash) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the cached file for the key and marks it as most recently used,
+     * or null when the key has not been synthesized yet. Files that are still
+     * being rendered are returned too, as the engine completes the render before
+     * it gets to any playback queued after it.
+     */
+    synchronized File get(String key) {
+        if(pending.contains(key)) {
+            hits++;
+            return file(key);
+        }
+        File file = entries.get(key);
+        if(file == null || !file.exists()) {
+            if(file != null) {
+                remove(key);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Returns the location the engine should render a new entry to and marks
+     * the entry as pending. It becomes visible to get() only after commit().
+     */
+    synchronized File begin(String key) {
+        pending.add(key);
+        return file(key);
+    }
+
+    /** Makes the rendered entry visible, with the word ranges reported while rendering it if any. */
+    synchronized void commit(String key, TimingIndex.Builder timings) {
+        pending.remove(key);
+        File file = file(key);
+        if(!isComplete(file)) {
+            file.delete();
+            return;
+        }
+        // engines that do not report words have no timings to keep
+        if(timings != null && timings.size() > 0) {
+            try {
+                timings.write(timingFile(key), file);
+            } catch (IOException e) {
+                // the audio is fine without it
+                timingFile(key).delete();
+            }
+        }
+        entries.put(key, file);
+        size += sizeOf(key);
+        trim();
+    }
+
+    synchronized void discard(String key) {
+        pending.remove(key);
+        file(key).delete();
+        timingFile(key).delete();
+    }
+
+    /** Returns the timing index of the cached entry, or null if it has none or is not cached. */
+    synchronized File getTimings(String key) {
+        File timings = timingFile(key);
+        return entries.containsKey(key) && timings.exists() ? timings : null;
+    }
+
+    /** Keeps the bounds of the segments the text of the key was split into to be spoken. */
+    synchronized void putSegments(String key, int[] bounds) {
+        File file = segmentsFile(key);
+        if(bounds.length <= 2) {
+            // cached whole
+            file.delete();
+            return;
+        }
+        try {
+            DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+            try {
+                output.writeInt(bounds.length);
+                for(int bound: bounds) {
+                    output.writeInt(bound);
+                }
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            // the text's timings are not found, as if it was not cached
+            file.delete();
+        }
+    }
+
+    /** Returns the bounds of the segments of the text of the key, or null if it was not split. */
+    synchronized int[] getSegments(String key) {
+        File file = segmentsFile(key);
+        if(!file.exists()) {
+            return null;
+        }
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                int count = input.readInt();
+                if(count < 2 || file.length() != 4 * (count + 1L)) {
+                    throw new IOException("Corrupt segments: " + file);
+                }
+                int[] bounds = new int[count];
+                for(int i = 0; i < count; i++) {
+                    bounds[i] = input.readInt();
+                }
+                return bounds;
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trim();
+    }
+
+    synchronized void clear() {
+        for(String key: entries.keySet()) {
+            file(key).delete();
+            timingFile(key).delete();
+        }
+        entries.clear();
+        size = 0;
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                if(file.getName().endsWith(SEGMENTS_EXTENSION)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    synchronized int getCount() {
+        return entries.size();
+    }
+
+    private File file(String key) {
+        return new File(directory, key + FILE_EXTENSION);
+    }
+
+    private File timingFile(String key) {
+        return new File(directory, key + TimingIndex.FILE_EXTENSION);
+    }
+
+    private File segmentsFile(String key) {
+        return new File(directory, key + SEGMENTS_EXTENSION);
+    }
+
+    private long sizeOf(String key) {
+        return file(key).length() + timingFile(key).length();
+    }
+
+    /**
+     * Engines write the RIFF header only once the whole file has been rendered,
+     * so a file without one was cut short by a process death.
+     */
+    static boolean isComplete(File file) {
+        if(file.length() <= WAV_HEADER_SIZE) {
+            return false;
+        }
+        byte[] magic = new byte[4];
+        try {
+            FileInputStream stream = new FileInputStream(file);
+            try {
+                return stream.read(magic) == magic.length
+                        && magic[0] == 'R' && magic[1] == 'I' && magic[2] == 'F' && magic[3] == 'F';
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void remove(String key) {
+        if(entries.remove(key) != null) {
+            size -= sizeOf(key);
+            file(key).delete();
+            timingFile(key).delete();
+        }
+    }
+
+    private void trim() {
+        Iterator<String> iterator = entries.keySet().iterator();
+        while(size > maxSize && iterator.hasNext()) {
+            String key = iterator.next();
+            size -= sizeOf(key);
+            file(key).delete();
+            timingFile(key).delete();
+            iterator.remove();
+        }
+    }
+
+    private void load() {
+        directory.mkdirs();
+        File[] files = directory.listFiles();
+        if(files == null) {
+            return;
+        }
+        // oldest first, so that the access order of the map matches the files' last use
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for(File file: files) {
+            String name = file.getName();
+            if(name.endsWith(FILE_EXTENSION) && isComplete(file)) {
+                String key = name.substring(0, name.length() - FILE_EXTENSION.length());
+                entries.put(key, file);
+                size += sizeOf(key);
+            } else if(!name.endsWith(TimingIndex.FILE_EXTENSION) && !name.endsWith(SEGMENTS_EXTENSION)) {
+                file.delete();
+            }
+        }
+        // timing indexes of audio that did not make it
+        for(File file: files) {
+            String name = file.getName();
+            if(name.endsWith(TimingIndex.FILE_EXTENSION)
+                    && !entries.containsKey(name.substring(0, name.length() - TimingIndex.FILE_EXTENSION.length()))) {
+                file.delete();
+            }
+        }
+        trim();
+        // segments last written before the least recently used entry are those of texts evicted since
+        long oldest = entries.isEmpty() ? Long.MAX_VALUE : entries.values().iterator().next().lastModified();
+        for(File file: files) {
+            if(file.getName().endsWith(SEGMENTS_EXTENSION) && file.lastModified() < oldest) {
+                file.delete();
+            }
+        }
+    }
+}
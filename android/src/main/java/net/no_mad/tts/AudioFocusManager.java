@@ -0,0 +1,103 @@
+package net.no_mad.tts;
+
+import android.media.AudioManager;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Holds audio focus for a whole speaking session rather than for every utterance.
+ *
+ * Focus is requested when the first utterance is queued and held while utterances
+ * follow each other. It is abandoned only once nothing has been queued for the grace
+ * period, so that other apps are not ducked and restored between utterances.
+ */
+class AudioFocusManager {
+
+    interface Listener {
+        /** Focus was taken by another app, transient losses are followed by onFocusGained(). */
+        void onFocusLost(boolean transientLoss);
+
+        void onFocusGained();
+    }
+
+    private final AudioManager audioManager;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final AudioManager.OnAudioFocusChangeListener focusChangeListener = new AudioManager.OnAudioFocusChangeListener() {
+        @Override
+        public void onAudioFocusChange(int focusChange) {
+            switch(focusChange) {
+                case AudioManager.AUDIOFOCUS_GAIN:
+                    listener.onFocusGained();
+                    break;
+                case AudioManager.AUDIOFOCUS_LOSS:
+                    synchronized(AudioFocusManager.this) {
+                        held = false;
+                        handler.removeCallbacks(releaseRunnable);
+                    }
+                    audioManager.abandonAudioFocus(this);
+                    listener.onFocusLost(false);
+                    break;
+                case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT:
+                    listener.onFocusLost(true);
+                    break;
+                default:
+                    // AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK, speech keeps playing while the other app is heard
+                    break;
+            }
+        }
+    };
+
+    private final Runnable releaseRunnable = new Runnable() {
+        @Override
+        public void run() {
+            release();
+        }
+    };
+
+    private boolean held = false;
+    private long gracePeriod = 1000;
+
+    AudioFocusManager(AudioManager audioManager, Listener listener) {
+        this.audioManager = audioManager;
+        this.listener = listener;
+    }
+
+    synchronized void setGracePeriod(long gracePeriod) {
+        this.gracePeriod = gracePeriod;
+    }
+
+    /** Requests focus unless it is already held. Returns false if the request was denied. */
+    synchronized boolean acquire() {
+        handler.removeCallbacks(releaseRunnable);
+        if(held) {
+            return true;
+        }
+        int result = audioManager.requestAudioFocus(focusChangeListener,
+                                                    // Use the music stream.
+                                                    AudioManager.STREAM_MUSIC,
+                                                    // Request transient focus, letting other apps duck.
+                                                    AudioManager.AUDIOFOCUS_GAIN_TRANSIENT_MAY_DUCK);
+        held = result == AudioManager.AUDIOFOCUS_REQUEST_GRANTED;
+        return held;
+    }
+
+    /** Abandons focus after the grace period, unless acquire() is called before that. */
+    synchronized void releaseLater() {
+        if(!held) {
+            return;
+        }
+        handler.removeCallbacks(releaseRunnable);
+        handler.postDelayed(releaseRunnable, gracePeriod);
+    }
+
+    synchronized void release() {
+        handler.removeCallbacks(releaseRunnable);
+        if(!held) {
+            return;
+        }
+        held = false;
+        audioManager.abandonAudioFocus(focusChangeListener);
+    }
+}
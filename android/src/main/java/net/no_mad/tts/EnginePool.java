@@ -0,0 +1,273 @@
+package net.no_mad.tts;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.speech.tts.TextToSpeech;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Initialized engines by package name, kept around so that switching between engines
+ * does not wait for the engine service to be bound and initialized again.
+ *
+ * Engines that are not in use are shut down, least recently used first, once there are
+ * more than maxSize of them, and once they have not been used for the idle timeout.
+ * All of them can be released while the app is in the background, they keep their
+ * settings and are started again when next used.
+ *
+ * Not thread safe, the module only uses it on its engine thread, which the handler runs on.
+ */
+class EnginePool {
+
+    static final int DEFAULT_MAX_SIZE = 2;
+    static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+
+    interface Listener {
+        /** Called right after the engine is created, before it is initialized. */
+        void onCreated(Engine engine);
+
+        /** Called on the handler's thread once the engine initialized, or failed to. */
+        void onInit(Engine engine, int status, long initTime);
+
+        /** Engines in use are never shut down by the pool. */
+        boolean isInUse(Engine engine);
+    }
+
+    /** An engine instance and the settings it currently speaks with. */
+    static class Engine {
+        /** Package name of the engine, null for the system default one. */
+        final String name;
+        TextToSpeech tts;
+        /** Null while the engine initializes. */
+        Boolean ready = null;
+        long lastUsed;
+        // voices of the engine, listed on first use
+        VoiceCatalog voiceCatalog;
+        // settings the engine speaks with unless an utterance has its own
+        String voice = null;
+        String language = null;
+        float rate = 1.0f;
+        float pitch = 1.0f;
+        // settings last applied to the instance, null when they are not known
+        VoiceSettings applied = VoiceSettings.INITIAL;
+        // when the engine failed, 0 unless it is being recovered
+        long failedAt = 0;
+        // restarts since the engine last spoke successfully
+        int restarts = 0;
+        // the instance was shut down until the engine is used again
+        boolean released = false;
+        // when the released engine was started again, 0 once it is initialized
+        long restoreStartedAt = 0;
+
+        Engine(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Context context;
+    private final Handler handler;
+    private final Listener listener;
+    // in access order, least recently used first
+    private final LinkedHashMap<String, Engine> engines = new LinkedHashMap<String, Engine>(4, 0.75f, true);
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    private final Runnable evictRunnable = new Runnable() {
+        @Override
+        public void run() {
+            evictIdle();
+        }
+    };
+
+    EnginePool(Context context, Handler handler, Listener listener) {
+        this.context = context;
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the engine with the package name, or the system default one for null,
+     * creating it if it is not in the pool. A created engine is not ready until
+     * the listener's onInit() is called for it.
+     */
+    Engine get(String name) {
+        Engine engine = engines.get(name);
+        if(engine == null) {
+            engine = create(name);
+            engines.put(name, engine);
+            trim(engine);
+        } else {
+            restore(engine);
+        }
+        engine.lastUsed = SystemClock.elapsedRealtime();
+        return engine;
+    }
+
+    /** Returns the engine with the package name if it is in the pool, without creating or restoring it. */
+    Engine peek(String name) {
+        return engines.get(name);
+    }
+
+    /** Marks the engine as used now, it is shut down after the idle timeout unless used again. */
+    void touch(Engine engine) {
+        engine.lastUsed = SystemClock.elapsedRealtime();
+        handler.removeCallbacks(evictRunnable);
+        handler.postDelayed(evictRunnable, idleTimeout);
+    }
+
+    void setOptions(int maxSize, long idleTimeout) {
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+        trim(null);
+        evictIdle();
+    }
+
+    List<Engine> getEngines() {
+        return new ArrayList<Engine>(engines.values());
+    }
+
+    void shutdownAll() {
+        handler.removeCallbacks(evictRunnable);
+        for(Engine engine: engines.values()) {
+            shutdown(engine);
+        }
+        engines.clear();
+    }
+
+    /**
+     * Shuts down the instances of all engines, keeping the engines and their settings.
+     * Returns the number of instances that were shut down.
+     */
+    int release() {
+        handler.removeCallbacks(evictRunnable);
+        int count = 0;
+        for(Engine engine: engines.values()) {
+            if(!engine.released) {
+                shutdown(engine);
+                engine.released = true;
+                engine.ready = null;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates a new instance of the released engine, which is not ready until the
+     * listener's onInit() is called for it. Returns false if it was not released.
+     */
+    boolean restore(Engine engine) {
+        if(!engine.released) {
+            return false;
+        }
+        engine.released = false;
+        engine.restoreStartedAt = SystemClock.elapsedRealtime();
+        start(engine);
+        return true;
+    }
+
+    /**
+     * Shuts down the engine's instance and creates a new one in its place, keeping the
+     * settings. As with get(), it is not ready until the listener's onInit() is called.
+     */
+    void restart(Engine engine) {
+        shutdown(engine);
+        engine.ready = null;
+        engine.restarts++;
+        start(engine);
+        // an instance that failed to initialize was taken out of the pool
+        if(!engines.containsKey(engine.name)) {
+            engines.put(engine.name, engine);
+        }
+    }
+
+    private Engine create(String name) {
+        Engine engine = new Engine(name);
+        start(engine);
+        return engine;
+    }
+
+    private void start(final Engine engine) {
+        String name = engine.name;
+        engine.applied = VoiceSettings.INITIAL;
+        final long initStartedAt = SystemClock.elapsedRealtime();
+        // the instance the init callback is for, set before the callback runs on the handler's thread
+        final TextToSpeech[] instance = new TextToSpeech[1];
+        TextToSpeech.OnInitListener initListener = new TextToSpeech.OnInitListener() {
+            @Override
+            public void onInit(final int status) {
+                final long initTime = SystemClock.elapsedRealtime() - initStartedAt;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(engine.tts != instance[0]) {
+                            // an instance that was restarted before it initialized
+                            return;
+                        }
+                        engine.ready = status == TextToSpeech.SUCCESS ? Boolean.TRUE : Boolean.FALSE;
+                        if(engine.ready != Boolean.TRUE && engines.get(engine.name) == engine) {
+                            // the next get() tries again with a new instance
+                            engines.remove(engine.name);
+                            engine.tts.shutdown();
+                        }
+                        listener.onInit(engine, status, initTime);
+                    }
+                });
+            }
+        };
+        if(name == null) {
+            engine.tts = new TextToSpeech(context, initListener);
+        } else {
+            engine.tts = new TextToSpeech(context, initListener, name);
+        }
+        instance[0] = engine.tts;
+        listener.onCreated(engine);
+    }
+
+    private void shutdown(Engine engine) {
+        if(engine.released) {
+            return;
+        }
+        engine.tts.stop();
+        engine.tts.shutdown();
+    }
+
+    // shuts down engines not in use until there are at most maxSize of them, except for keep
+    private void trim(Engine keep) {
+        Iterator<Engine> iterator = engines.values().iterator();
+        while(engines.size() > maxSize && iterator.hasNext()) {
+            Engine engine = iterator.next();
+            if(engine != keep && !listener.isInUse(engine)) {
+                shutdown(engine);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void evictIdle() {
+        handler.removeCallbacks(evictRunnable);
+        long now = SystemClock.elapsedRealtime();
+        long nextEviction = Long.MAX_VALUE;
+        Iterator<Engine> iterator = engines.values().iterator();
+        while(iterator.hasNext()) {
+            Engine engine = iterator.next();
+            if(listener.isInUse(engine)) {
+                continue;
+            }
+            long idleUntil = engine.lastUsed + idleTimeout;
+            if(idleUntil <= now) {
+                shutdown(engine);
+                iterator.remove();
+            } else {
+                nextEviction = Math.min(nextEviction, idleUntil);
+            }
+        }
+        if(nextEviction != Long.MAX_VALUE) {
+            handler.postDelayed(evictRunnable, nextEviction - now);
+        }
+    }
+}
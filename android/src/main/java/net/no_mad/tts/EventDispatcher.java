@@ -0,0 +1,189 @@
+package net.no_mad.tts;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Sends utterance events to JS, either one by one as they happen or buffered and
+ * flushed as a single "tts-batch" event on a fixed interval.
+ *
+ * In the "latest" mode only the most recent progress event of every utterance is kept
+ * between flushes. Events keep their order within a batch, so a progress event is
+ * always delivered before the finish event of its utterance, and the admission events
+ * are delivered in order with the events of the utterances they were merged into.
+ */
+class EventDispatcher {
+
+    static final String BATCH_EVENT = "tts-batch";
+    static final String MERGE_EVENT = "tts-merge";
+    static final String DROP_EVENT = "tts-drop";
+    private static final String PROGRESS_EVENT = "tts-progress";
+
+    static final int MODE_IMMEDIATE = 0;
+    static final int MODE_BATCH = 1;
+    static final int MODE_LATEST = 2;
+
+    interface Emitter {
+        void emit(String eventName, WritableMap params);
+    }
+
+    private static class Event {
+        final String name;
+        final String utteranceId;
+        int start;
+        int end;
+        int frame;
+        // of the admission events
+        String into;
+        String reason;
+        double dropped;
+        double merged;
+
+        Event(String name, String utteranceId) {
+            this.name = name;
+            this.utteranceId = utteranceId;
+        }
+
+        void writeTo(WritableMap map) {
+            map.putString("utteranceId", utteranceId);
+            if(name.equals(PROGRESS_EVENT)) {
+                map.putInt("start", start);
+                map.putInt("end", end);
+                map.putInt("frame", frame);
+            } else if(name.equals(MERGE_EVENT) || name.equals(DROP_EVENT)) {
+                if(into != null) {
+                    map.putString("into", into);
+                }
+                map.putString("reason", reason);
+                map.putDouble("dropped", dropped);
+                map.putDouble("merged", merged);
+            }
+        }
+    }
+
+    private final Emitter emitter;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private volatile int mode = MODE_IMMEDIATE;
+    private long interval = 100;
+    private int maxBatchSize = 100;
+
+    private ArrayList<Event> buffer = new ArrayList<Event>();
+    // utterance id -> progress event in the buffer that may still be overwritten
+    private final HashMap<String, Event> latestProgress = new HashMap<String, Event>();
+
+    EventDispatcher(Emitter emitter) {
+        this.emitter = emitter;
+    }
+
+    synchronized void setOptions(int mode, long interval, int maxBatchSize) {
+        this.mode = mode;
+        this.interval = interval;
+        this.maxBatchSize = maxBatchSize;
+        if(mode == MODE_IMMEDIATE) {
+            flush();
+        }
+    }
+
+    void sendEvent(String eventName, String utteranceId) {
+        if(mode == MODE_IMMEDIATE) {
+            WritableMap params = Arguments.createMap();
+            params.putString("utteranceId", utteranceId);
+            emitter.emit(eventName, params);
+            return;
+        }
+        synchronized(this) {
+            latestProgress.remove(utteranceId);
+            add(new Event(eventName, utteranceId));
+        }
+    }
+
+    void sendProgress(String utteranceId, int start, int end, int frame) {
+        if(mode == MODE_IMMEDIATE) {
+            WritableMap params = Arguments.createMap();
+            params.putString("utteranceId", utteranceId);
+            params.putInt("start", start);
+            params.putInt("end", end);
+            params.putInt("frame", frame);
+            emitter.emit(PROGRESS_EVENT, params);
+            return;
+        }
+        synchronized(this) {
+            Event event = mode == MODE_LATEST ? latestProgress.get(utteranceId) : null;
+            if(event == null) {
+                event = new Event(PROGRESS_EVENT, utteranceId);
+                if(mode == MODE_LATEST) {
+                    latestProgress.put(utteranceId, event);
+                }
+                add(event);
+            }
+            event.start = start;
+            event.end = end;
+            event.frame = frame;
+        }
+    }
+
+    /** Sends a "tts-merge" or "tts-drop" event, into is null for a dropped utterance. */
+    void sendAdmission(String eventName, String utteranceId, String into, String reason, double dropped, double merged) {
+        Event event = new Event(eventName, utteranceId);
+        event.into = into;
+        event.reason = reason;
+        event.dropped = dropped;
+        event.merged = merged;
+        if(mode == MODE_IMMEDIATE) {
+            WritableMap params = Arguments.createMap();
+            event.writeTo(params);
+            emitter.emit(eventName, params);
+            return;
+        }
+        synchronized(this) {
+            add(event);
+        }
+    }
+
+    void flush() {
+        ArrayList<Event> events;
+        synchronized(this) {
+            handler.removeCallbacks(flushRunnable);
+            if(buffer.isEmpty()) {
+                return;
+            }
+            events = buffer;
+            buffer = new ArrayList<Event>();
+            latestProgress.clear();
+        }
+        WritableArray array = Arguments.createArray();
+        for(Event event: events) {
+            WritableMap map = Arguments.createMap();
+            map.putString("type", event.name);
+            event.writeTo(map);
+            array.pushMap(map);
+        }
+        WritableMap params = Arguments.createMap();
+        params.putArray("events", array);
+        emitter.emit(BATCH_EVENT, params);
+    }
+
+    private void add(Event event) {
+        buffer.add(event);
+        if(buffer.size() >= maxBatchSize) {
+            handler.removeCallbacks(flushRunnable);
+            handler.post(flushRunnable);
+        } else if(buffer.size() == 1) {
+            handler.postDelayed(flushRunnable, interval);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package net.no_mad.tts;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Exports a text to a single WAV file, rendering its segments on an engine instance of
+ * its own and appending them to the file in order as they are done.
+ *
+ * The engine service synthesizes on a single thread, whatever the number of instances
+ * bound to it, so more instances would not render segments any faster. Instead a few
+ * segments are queued on the instance ahead of the one to be appended next, so that it
+ * does not wait for the file to be written in between, and the temporary files take the
+ * same space whatever the length of the text. Everything runs on a thread of the
+ * export's own, the listener is called on the handler it is created with.
+ */
+class Exporter {
+
+    // segments queued on the engine ahead of the one to be appended next
+    private static final int RENDER_AHEAD = 2;
+
+    interface Listener {
+        void onProgress(Exporter exporter, int appended, int segments);
+
+        void onFinish(Exporter exporter);
+
+        void onError(Exporter exporter, String message);
+
+        void onCancel(Exporter exporter);
+    }
+
+    final String id;
+    final File file;
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler listenerHandler;
+    private final String text;
+    // segment i spans the text from bounds[i] to bounds[i + 1]
+    private final int[] bounds;
+    // settings of the engine the text is spoken with
+    private final String engineName;
+    private final Voice voice;
+    private final String language;
+    private final float rate;
+    private final float pitch;
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final File directory;
+
+    private TextToSpeech worker;
+    private boolean ready = false;
+    // whether segment i is rendered and waits to be appended
+    private final boolean[] rendered;
+    // the next segment to render, and to append to the file
+    private int nextRender = 0;
+    private int nextAppend = 0;
+    private WavWriter writer;
+    private boolean finished = false;
+
+    Exporter(String id, Context context, File file, String text, int[] bounds,
+             String engineName, Voice voice, String language, float rate, float pitch,
+             Listener listener, Handler listenerHandler) {
+        this.id = id;
+        this.context = context;
+        this.file = file;
+        this.text = text;
+        this.bounds = bounds;
+        this.engineName = engineName;
+        this.voice = voice;
+        this.language = language;
+        this.rate = rate;
+        this.pitch = pitch;
+        this.listener = listener;
+        this.listenerHandler = listenerHandler;
+        rendered = new boolean[bounds.length - 1];
+        directory = new File(new File(context.getCacheDir(), "tts-export"), id);
+        thread = new HandlerThread("TextToSpeechExport");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    void start() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    directory.mkdirs();
+                    writer = new WavWriter(file);
+                } catch (IOException e) {
+                    fail("Could not write " + file + ": " + e.getMessage());
+                    return;
+                }
+                if(rendered.length == 0) {
+                    finish();
+                } else {
+                    createWorker();
+                }
+            }
+        });
+    }
+
+    void cancel() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if(finished) {
+                    return;
+                }
+                release();
+                writer.abort();
+                listenerHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onCancel(Exporter.this);
+                    }
+                });
+            }
+        });
+    }
+
+    private void createWorker() {
+        TextToSpeech.OnInitListener initListener = new TextToSpeech.OnInitListener() {
+            @Override
+            public void onInit(final int status) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onWorkerInit(status);
+                    }
+                });
+            }
+        };
+        worker = engineName == null
+                ? new TextToSpeech(context, initListener)
+                : new TextToSpeech(context, initListener, engineName);
+        worker.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override
+            public void onStart(String renderId) {
+            }
+
+            @Override
+            public void onDone(final String renderId) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onRendered(Integer.parseInt(renderId));
+                    }
+                });
+            }
+
+            @Override
+            @SuppressWarnings("deprecation")
+            public void onError(String renderId) {
+                onError(renderId, TextToSpeech.ERROR);
+            }
+
+            @Override
+            public void onError(final String renderId, int errorCode) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        fail("Failed to synthesize segment " + renderId);
+                    }
+                });
+            }
+
+            @Override
+            public void onStop(String renderId, boolean interrupted) {
+                // only stopped when cancelled or failed
+            }
+        });
+    }
+
+    private void onWorkerInit(int status) {
+        if(finished) {
+            return;
+        }
+        if(status != TextToSpeech.SUCCESS) {
+            fail("No TTS engine installed");
+            return;
+        }
+        if(language != null) {
+            worker.setLanguage(LocaleCodes.toLocale(language));
+        }
+        if(voice != null) {
+            try {
+                worker.setVoice(voice);
+            } catch (Exception e) {
+                // Purposefully ignore exceptions here due to some buggy TTS engines.
+            }
+        }
+        worker.setSpeechRate(rate);
+        worker.setPitch(pitch);
+        ready = true;
+        dispatch();
+    }
+
+    // queues the segments up to RENDER_AHEAD of the next one to append on the engine
+    private void dispatch() {
+        while(ready && nextRender < rendered.length && nextRender < nextAppend + RENDER_AHEAD) {
+            int segment = nextRender++;
+            String segmentText = text.substring(bounds[segment], bounds[segment + 1]);
+            int result = worker.synthesizeToFile(segmentText, new Bundle(), segmentFile(segment), Integer.toString(segment));
+            if(result != TextToSpeech.SUCCESS) {
+                fail("Failed to synthesize segment " + segment);
+                return;
+            }
+        }
+    }
+
+    private void onRendered(int segment) {
+        if(finished) {
+            return;
+        }
+        rendered[segment] = true;
+        try {
+            while(nextAppend < rendered.length && rendered[nextAppend]) {
+                File segmentFile = segmentFile(nextAppend);
+                writer.append(segmentFile);
+                segmentFile.delete();
+                nextAppend++;
+                final int appended = nextAppend;
+                listenerHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onProgress(Exporter.this, appended, rendered.length);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            fail("Could not write " + file + ": " + e.getMessage());
+            return;
+        }
+        if(nextAppend == rendered.length) {
+            finish();
+        } else {
+            dispatch();
+        }
+    }
+
+    private void finish() {
+        release();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            file.delete();
+            notifyError("Could not write " + file + ": " + e.getMessage());
+            return;
+        }
+        listenerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onFinish(Exporter.this);
+            }
+        });
+    }
+
+    private void fail(String message) {
+        if(finished) {
+            return;
+        }
+        release();
+        if(writer != null) {
+            writer.abort();
+        }
+        notifyError(message);
+    }
+
+    private void notifyError(final String message) {
+        listenerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onError(Exporter.this, message);
+            }
+        });
+    }
+
+    // stops the worker and deletes the temporary files, the thread quits once the current message is handled
+    private void release() {
+        finished = true;
+        if(worker != null) {
+            worker.stop();
+            worker.shutdown();
+            worker = null;
+        }
+        ready = false;
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File segmentFile: files) {
+                segmentFile.delete();
+            }
+        }
+        directory.delete();
+        thread.quit();
+    }
+
+    private File segmentFile(int segment) {
+        return new File(directory, String.format(Locale.US, "%06d%s", segment, AudioCache.FILE_EXTENSION));
+    }
+}
@@ -0,0 +1,64 @@
+package net.no_mad.tts;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ISO3 to ISO2 language and country code mapping.
+ *
+ * The tables are built on first use and shared by all module instances, so that
+ * creating the module does not pay for walking every ISO language and country.
+ */
+final class LocaleCodes {
+
+    private LocaleCodes() {
+    }
+
+    // initialized by the class loader on first access to Tables
+    private static final class Tables {
+        static final Map<String, String> COUNTRIES = buildCountries();
+        static final Map<String, String> LANGUAGES = buildLanguages();
+
+        private static Map<String, String> buildCountries() {
+            String[] countries = Locale.getISOCountries();
+            Map<String, String> map = new HashMap<String, String>(countries.length * 2);
+            for(String country: countries) {
+                Locale locale = new Locale("", country);
+                map.put(locale.getISO3Country().toUpperCase(), country);
+            }
+            return map;
+        }
+
+        private static Map<String, String> buildLanguages() {
+            String[] languages = Locale.getISOLanguages();
+            Map<String, String> map = new HashMap<String, String>(languages.length * 2);
+            for(String language: languages) {
+                Locale locale = new Locale(language);
+                map.put(locale.getISO3Language(), language);
+            }
+            return map;
+        }
+    }
+
+    /** Returns the locale for a language, "en", or a language with a country, "en-US". */
+    static Locale toLocale(String language) {
+        if(language.indexOf("-") != -1) {
+            String[] parts = language.split("-");
+            return new Locale(parts[0], parts[1]);
+        }
+        return new Locale(language);
+    }
+
+    /** Returns the ISO2 country code, or the code itself if it is not a known ISO3 one. */
+    static String iso3CountryToIso2(String iso3CountryCode) {
+        String country = Tables.COUNTRIES.get(iso3CountryCode);
+        return country != null ? country : iso3CountryCode;
+    }
+
+    /** Returns the ISO2 language code, or the code itself if it is not a known ISO3 one. */
+    static String iso3LanguageToIso2(String iso3LanguageCode) {
+        String language = Tables.LANGUAGES.get(iso3LanguageCode);
+        return language != null ? language : iso3LanguageCode;
+    }
+}
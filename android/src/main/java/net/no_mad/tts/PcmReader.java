@@ -0,0 +1,111 @@
+package net.no_mad.tts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the samples of a WAV file through a memory mapping of it, so that a file of any
+ * size can be read in chunks without ever being loaded on the heap.
+ */
+class PcmReader {
+
+    private static final int FORMAT_FLOAT = 3;
+
+    final int sampleRate;
+    final int channels;
+    final int bitsPerSample;
+    // bytes per frame, chunks are cut on frame boundaries
+    final int blockAlign;
+    private final int formatTag;
+
+    private final RandomAccessFile file;
+    // the samples of the data chunk
+    private final ByteBuffer data;
+
+    PcmReader(File wav) throws IOException {
+        file = new RandomAccessFile(wav, "r");
+        try {
+            MappedByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if(mapped.remaining() < 12 || mapped.getInt(0) != tag("RIFF") || mapped.getInt(8) != tag("WAVE")) {
+                throw new IOException("Not a WAV file: " + wav);
+            }
+            long position = 12;
+            int format = -1;
+            ByteBuffer samples = null;
+            while(samples == null && position + 8 <= mapped.limit()) {
+                int chunkTag = mapped.getInt((int) position);
+                long chunkSize = mapped.getInt((int) position + 4) & 0xffffffffL;
+                position += 8;
+                if(chunkTag == tag("fmt ")) {
+                    format = (int) position;
+                } else if(chunkTag == tag("data")) {
+                    if(format == -1) {
+                        throw new IOException("No format before the samples in " + wav);
+                    }
+                    // engines that stream the file may not know the size when writing the header
+                    int remaining = mapped.limit() - (int) position;
+                    int size = chunkSize == 0 || chunkSize > remaining ? remaining : (int) chunkSize;
+                    mapped.position((int) position);
+                    samples = mapped.slice();
+                    samples.limit(size);
+                }
+                position += chunkSize + (chunkSize & 1);
+            }
+            if(samples == null) {
+                throw new IOException("No samples in " + wav);
+            }
+            formatTag = mapped.getShort(format) & 0xffff;
+            channels = mapped.getShort(format + 2) & 0xffff;
+            sampleRate = mapped.getInt(format + 4);
+            blockAlign = Math.max(mapped.getShort(format + 12) & 0xffff, 1);
+            bitsPerSample = mapped.getShort(format + 14) & 0xffff;
+            // whole frames only
+            samples.limit(samples.limit() - samples.limit() % blockAlign);
+            data = samples;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** Size of the samples in bytes. */
+    int size() {
+        return data.limit();
+    }
+
+    /** Name of the sample encoding, after Android's AudioFormat.ENCODING_* constants. */
+    String encoding() {
+        if(formatTag == FORMAT_FLOAT) {
+            return "pcm_float";
+        }
+        return "pcm_" + bitsPerSample + "bit";
+    }
+
+    /** Reads the next samples into the buffer, returning the number of bytes read or -1 at the end. */
+    int read(byte[] buffer, int length) {
+        if(!data.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(length, data.remaining());
+        data.get(buffer, 0, count);
+        return count;
+    }
+
+    void close() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            // nothing to do about it, the mapping goes away with the buffer
+        }
+    }
+
+    private static int tag(String tag) {
+        return tag.charAt(0) | tag.charAt(1) << 8 | tag.charAt(2) << 16 | tag.charAt(3) << 24;
+    }
+}
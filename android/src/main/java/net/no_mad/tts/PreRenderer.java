@@ -0,0 +1,355 @@
+package net.no_mad.tts;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders utterances to files before the engine gets to them, so that they are played
+ * back to back without a pause for synthesis in between.
+ *
+ * Rendering is done by an engine instance of its own, which runs alongside the one that
+ * speaks. Rendered files are kept within a size budget and deleted once played. The word
+ * ranges the engine reports while rendering are kept along with a file, for the module to
+ * report them while the file is played as the engine does not.
+ *
+ * Not thread safe, the module only uses it on its engine thread, which the handler runs on.
+ */
+class PreRenderer {
+
+    private static final String RENDER_ID_PREFIX = "render-";
+    // the engine service synthesizes one text at a time, further renders would only queue up in front of the speech
+    private static final int MAX_PENDING_RENDERS = 1;
+
+    private final Context context;
+    private final Handler handler;
+    // called once a render is done or the renderer is initialized, there may be room for more
+    private final Runnable onRendered;
+    private final File directory;
+    private long maxSize;
+
+    private TextToSpeech tts;
+    private String engineName;
+    private Boolean ready = null;
+    // tells the init callback of the current instance from those of the ones shut down
+    private int generation = 0;
+    // settings the renderer currently renders with
+    private String voice = null;
+    private String language = null;
+    private float rate = 1.0f;
+    private float pitch = 1.0f;
+
+    // render id -> key of the file being rendered
+    private final HashMap<String, String> renders = new HashMap<String, String>();
+    // key -> rendered file that has not been played yet
+    private final HashMap<String, File> rendered = new HashMap<String, File>();
+    // request id -> rendered file being played
+    private final HashMap<String, File> playing = new HashMap<String, File>();
+    // render id -> word ranges reported so far
+    private final HashMap<String, TimingIndex.Builder> rangesOfRenders = new HashMap<String, TimingIndex.Builder>();
+    // key, then request id once taken -> word ranges of the rendered file, if the engine reported any
+    private final HashMap<String, TimingIndex> renderedTimings = new HashMap<String, TimingIndex>();
+    private final HashMap<String, TimingIndex> playingTimings = new HashMap<String, TimingIndex>();
+    // of the files rendered and being played
+    private long size = 0;
+
+    PreRenderer(Context context, Handler handler, File directory, long maxSize, Runnable onRendered) {
+        this.context = context;
+        this.handler = handler;
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.onRendered = onRendered;
+        // left over by a process death
+        directory.mkdirs();
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                file.delete();
+            }
+        }
+    }
+
+    void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Starts rendering the text with the engine and the settings to the file for the key,
+     * unless it is rendered already. The voice is that of the settings, null if the engine
+     * does not have it. Returns false if there is no room for more files, a render is in
+     * progress already or the renderer is not ready yet.
+     */
+    boolean render(String engineName, VoiceSettings settings, Voice voice, String key, String text) {
+        // a file being played is not rendered again until it is released, the text is spoken as usual
+        if(rendered.containsKey(key) || renders.containsValue(key) || playing.containsValue(file(key))) {
+            return true;
+        }
+        if(renders.size() >= MAX_PENDING_RENDERS || size + pendingSize() >= maxSize) {
+            return false;
+        }
+        if(tts == null || !equals(engineName, this.engineName)) {
+            shutdown();
+            create(engineName);
+        }
+        if(ready != Boolean.TRUE) {
+            return false;
+        }
+        apply(settings, voice);
+        String renderId = RENDER_ID_PREFIX + key;
+        File file = file(key);
+        if(tts.synthesizeToFile(text, new Bundle(), file, renderId) != TextToSpeech.SUCCESS) {
+            file.delete();
+            return false;
+        }
+        renders.put(renderId, key);
+        rangesOfRenders.put(renderId, new TimingIndex.Builder());
+        return true;
+    }
+
+    /**
+     * Returns the rendered file for the key, or null if it is not rendered yet. The file
+     * is deleted once the request it is played with is released.
+     */
+    File take(String key, String requestId) {
+        File file = rendered.remove(key);
+        if(file != null) {
+            playing.put(requestId, file);
+            TimingIndex timings = renderedTimings.remove(key);
+            if(timings != null) {
+                playingTimings.put(requestId, timings);
+            }
+        }
+        return file;
+    }
+
+    /** Returns the word ranges of the file taken for the request, or null if the engine reported none. */
+    TimingIndex getTimings(String requestId) {
+        return playingTimings.get(requestId);
+    }
+
+    void release(String requestId) {
+        playingTimings.remove(requestId);
+        File file = playing.remove(requestId);
+        if(file != null) {
+            size -= file.length();
+            file.delete();
+        }
+    }
+
+    /** Deletes the rendered files that are not for any of the keys. */
+    void retain(Collection<String> keys) {
+        Iterator<Map.Entry<String, File>> iterator = rendered.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<String, File> entry = iterator.next();
+            if(!keys.contains(entry.getKey())) {
+                size -= entry.getValue().length();
+                entry.getValue().delete();
+                renderedTimings.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Stops rendering and deletes all the files, the engine playing them has to be stopped first. */
+    void cancel() {
+        if(tts != null) {
+            tts.stop();
+        }
+        for(String key: renders.values()) {
+            file(key).delete();
+        }
+        renders.clear();
+        rangesOfRenders.clear();
+        renderedTimings.clear();
+        playingTimings.clear();
+        for(File file: rendered.values()) {
+            file.delete();
+        }
+        rendered.clear();
+        for(File file: playing.values()) {
+            file.delete();
+        }
+        playing.clear();
+        size = 0;
+    }
+
+    void shutdown() {
+        cancel();
+        if(tts != null) {
+            tts.shutdown();
+            tts = null;
+        }
+        ready = null;
+    }
+
+    private void create(String name) {
+        engineName = name;
+        voice = null;
+        language = null;
+        rate = 1.0f;
+        pitch = 1.0f;
+        final int created = ++generation;
+        TextToSpeech.OnInitListener initListener = new TextToSpeech.OnInitListener() {
+            @Override
+            public void onInit(final int status) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(created != generation) {
+                            return;
+                        }
+                        ready = status == TextToSpeech.SUCCESS ? Boolean.TRUE : Boolean.FALSE;
+                        if(ready == Boolean.TRUE) {
+                            onRendered.run();
+                        }
+                    }
+                });
+            }
+        };
+        if(name == null) {
+            tts = new TextToSpeech(context, initListener);
+        } else {
+            tts = new TextToSpeech(context, initListener, name);
+        }
+        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override
+            public void onStart(String renderId) {
+            }
+
+            @Override
+            public void onDone(final String renderId) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onRenderDone(renderId, true);
+                    }
+                });
+            }
+
+            @Override
+            @SuppressWarnings("deprecation")
+            public void onError(String renderId) {
+                onError(renderId, TextToSpeech.ERROR);
+            }
+
+            @Override
+            public void onError(final String renderId, int errorCode) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onRenderDone(renderId, false);
+                    }
+                });
+            }
+
+            @Override
+            public void onStop(final String renderId, boolean interrupted) {
+                onError(renderId, TextToSpeech.ERROR);
+            }
+
+            @Override
+            public void onRangeStart(final String renderId, final int start, final int end, final int frame) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        TimingIndex.Builder ranges = rangesOfRenders.get(renderId);
+                        if(ranges != null) {
+                            ranges.add(start, end, frame);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void onRenderDone(String renderId, boolean success) {
+        TimingIndex.Builder ranges = rangesOfRenders.remove(renderId);
+        String key = renders.remove(renderId);
+        if(key == null) {
+            // cancelled, the engine may still have written some of it
+            if(renderId.startsWith(RENDER_ID_PREFIX)) {
+                file(renderId.substring(RENDER_ID_PREFIX.length())).delete();
+            }
+            return;
+        }
+        File file = file(key);
+        if(!success || !AudioCache.isComplete(file)) {
+            file.delete();
+            return;
+        }
+        rendered.put(key, file);
+        size += file.length();
+        if(ranges != null && ranges.size() > 0) {
+            try {
+                renderedTimings.put(key, ranges.build(file));
+            } catch (IOException e) {
+                // played without progress like any file
+            }
+        }
+        onRendered.run();
+    }
+
+    /**
+     * Brings the renderer in line with the settings the file is going to be played with, the
+     * way the module does with its engines. A setting is only recorded once the engine took it,
+     * so that one it refused is set again with the next render.
+     */
+    private void apply(VoiceSettings settings, Voice selected) {
+        if(!equals(settings.voice, voice) || !equals(settings.language, language)) {
+            boolean applied;
+            try {
+                if(selected != null) {
+                    applied = tts.setVoice(selected) == TextToSpeech.SUCCESS;
+                } else if(settings.language != null) {
+                    applied = tts.setLanguage(LocaleCodes.toLocale(settings.language)) >= TextToSpeech.LANG_AVAILABLE;
+                } else if(tts.getDefaultVoice() != null) {
+                    // back to what the engine speaks with by default
+                    applied = tts.setVoice(tts.getDefaultVoice()) == TextToSpeech.SUCCESS;
+                } else {
+                    applied = tts.setLanguage(Locale.getDefault()) >= TextToSpeech.LANG_AVAILABLE;
+                }
+            } catch (Exception e) {
+                // Purposefully ignore exceptions here due to some buggy TTS engines.
+                applied = false;
+            }
+            if(applied) {
+                voice = settings.voice;
+                language = settings.language;
+            }
+        }
+        if(settings.rate != rate && tts.setSpeechRate(settings.rate) == TextToSpeech.SUCCESS) {
+            rate = settings.rate;
+        }
+        if(settings.pitch != pitch && tts.setPitch(settings.pitch) == TextToSpeech.SUCCESS) {
+            pitch = settings.pitch;
+        }
+    }
+
+    // of the files being rendered so far
+    private long pendingSize() {
+        long pending = 0;
+        for(String key: renders.values()) {
+            pending += file(key).length();
+        }
+        return pending;
+    }
+
+    private File file(String key) {
+        return new File(directory, key + AudioCache.FILE_EXTENSION);
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,186 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms of utterances, grouped by the engine and voice that spoke them,
+ * and of engine initialization, recovery from engine failures and restoring engines
+ * released in the background, grouped by engine.
+ */
+class SpeechMetrics {
+
+    static final String DEFAULT_ENGINE = "default";
+    static final String DEFAULT_VOICE = "default";
+
+    private static class Group {
+        final String engine;
+        final String voice;
+        // from speak() to queueing on the engine
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        // from speak() to the engine starting on the utterance
+        final LatencyHistogram timeToFirstAudio = new LatencyHistogram();
+        // from speak() to the first word reported by the engine
+        final LatencyHistogram timeToFirstWord = new LatencyHistogram();
+        // from the engine starting on the utterance to finishing it
+        final LatencyHistogram duration = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong cancellations = new AtomicLong();
+
+        Group(String engine, String voice) {
+            this.engine = engine;
+            this.voice = voice;
+        }
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+            map.putString("engine", engine);
+            map.putString("voice", voice);
+            map.putMap("queueWait", histogramToMap(queueWait));
+            map.putMap("timeToFirstAudio", histogramToMap(timeToFirstAudio));
+            map.putMap("timeToFirstWord", histogramToMap(timeToFirstWord));
+            map.putMap("duration", histogramToMap(duration));
+            map.putDouble("errors", errors.get());
+            map.putDouble("cancellations", cancellations.get());
+            return map;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Group> groups = new ConcurrentHashMap<String, Group>();
+    private final ConcurrentHashMap<String, LatencyHistogram> engineInit = new ConcurrentHashMap<String, LatencyHistogram>();
+    // from the engine failing to it being initialized again
+    private final ConcurrentHashMap<String, LatencyHistogram> recoveries = new ConcurrentHashMap<String, LatencyHistogram>();
+    // engines that could not be initialized again
+    private final AtomicLong recoveryFailures = new AtomicLong();
+    // from a released engine being used again to it being initialized
+    private final ConcurrentHashMap<String, LatencyHistogram> restores = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final AtomicLong releases = new AtomicLong();
+    // bytes the app's memory shrank by when engines were released
+    private final AtomicLong memoryReleased = new AtomicLong();
+
+    void recordEngineInit(String engine, long time) {
+        histogramOf(engineInit, engine).record(time);
+    }
+
+    void recordRecovery(String engine, long downtime) {
+        histogramOf(recoveries, engine).record(downtime);
+    }
+
+    void recordRecoveryFailure() {
+        recoveryFailures.incrementAndGet();
+    }
+
+    void recordRelease(long memory) {
+        releases.incrementAndGet();
+        memoryReleased.addAndGet(memory);
+    }
+
+    void recordRestore(String engine, long time) {
+        histogramOf(restores, engine).record(time);
+    }
+
+    /** Records the timestamps of an utterance the engine finished speaking. */
+    void recordDone(Utterance utterance, long doneAt) {
+        Group group = groupOf(utterance);
+        if(utterance.enqueuedAt > 0) {
+            group.queueWait.record(utterance.enqueuedAt - utterance.acceptedAt);
+        }
+        if(utterance.startedAt > 0) {
+            group.timeToFirstAudio.record(utterance.startedAt - utterance.acceptedAt);
+            group.duration.record(doneAt - utterance.startedAt);
+        }
+        if(utterance.firstWordAt > 0) {
+            group.timeToFirstWord.record(utterance.firstWordAt - utterance.acceptedAt);
+        }
+    }
+
+    void recordError(Utterance utterance) {
+        groupOf(utterance).errors.incrementAndGet();
+    }
+
+    void recordCancellation(Utterance utterance) {
+        groupOf(utterance).cancellations.incrementAndGet();
+    }
+
+    WritableMap toMap() {
+        WritableMap map = Arguments.createMap();
+        WritableMap init = Arguments.createMap();
+        for(Map.Entry<String, LatencyHistogram> entry: engineInit.entrySet()) {
+            init.putMap(entry.getKey(), histogramToMap(entry.getValue()));
+        }
+        map.putMap("engineInit", init);
+        WritableMap recovery = Arguments.createMap();
+        for(Map.Entry<String, LatencyHistogram> entry: recoveries.entrySet()) {
+            recovery.putMap(entry.getKey(), histogramToMap(entry.getValue()));
+        }
+        map.putMap("recoveries", recovery);
+        map.putDouble("recoveryFailures", recoveryFailures.get());
+        WritableMap restore = Arguments.createMap();
+        for(Map.Entry<String, LatencyHistogram> entry: restores.entrySet()) {
+            restore.putMap(entry.getKey(), histogramToMap(entry.getValue()));
+        }
+        map.putMap("restores", restore);
+        map.putDouble("releases", releases.get());
+        map.putDouble("memoryReleased", memoryReleased.get());
+        WritableArray utterances = Arguments.createArray();
+        for(Group group: groups.values()) {
+            utterances.pushMap(group.toMap());
+        }
+        map.putArray("utterances", utterances);
+        return map;
+    }
+
+    static WritableMap histogramToMap(LatencyHistogram histogram) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("count", histogram.getCount());
+        map.putDouble("mean", histogram.getMean());
+        map.putDouble("max", histogram.getMax());
+        map.putDouble("p50", histogram.getPercentile(0.5));
+        map.putDouble("p90", histogram.getPercentile(0.9));
+        map.putDouble("p99", histogram.getPercentile(0.99));
+        return map;
+    }
+
+    void clear() {
+        groups.clear();
+        engineInit.clear();
+        recoveries.clear();
+        recoveryFailures.set(0);
+        restores.clear();
+        releases.set(0);
+        memoryReleased.set(0);
+    }
+
+    private static LatencyHistogram histogramOf(ConcurrentHashMap<String, LatencyHistogram> histograms, String engine) {
+        String name = engine != null ? engine : DEFAULT_ENGINE;
+        LatencyHistogram histogram = histograms.get(name);
+        if(histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(name, created);
+            if(histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    private Group groupOf(Utterance utterance) {
+        String engine = utterance.engine.name != null ? utterance.engine.name : DEFAULT_ENGINE;
+        String voice = utterance.voice != null ? utterance.voice : DEFAULT_VOICE;
+        String key = engine + '\u0000' + voice;
+        Group group = groups.get(key);
+        if(group == null) {
+            Group created = new Group(engine, voice);
+            group = groups.putIfAbsent(key, created);
+            if(group == null) {
+                group = created;
+            }
+        }
+        return group;
+    }
+}
@@ -0,0 +1,462 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites texts the way they are to be spoken before they are synthesized: the phrases
+ * of a lexicon are replaced, as are the matches of a set of regular expression rules, for
+ * units or numbers say.
+ *
+ * The lexicon is compiled into a trie and the rules into a single pattern, so that a text
+ * is rewritten in one pass over it. At every position the longest phrase of the lexicon
+ * that starts there wins over the rules. A phrase only matches whole words, a rule matches
+ * wherever its pattern does. Results are memoized for texts that are spoken repeatedly.
+ *
+ * Not thread safe, once compiled the module only uses it on its engine thread.
+ */
+class TextNormalizer {
+
+    static final int DEFAULT_MEMO_SIZE = 256;
+
+    /** A rewritten text, with the spans that were replaced to map offsets back to the original. */
+    static class Result {
+        final String text;
+        // the replaced spans in the rewritten text and in the original one, in text order
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] originalStarts;
+        private final int[] originalEnds;
+
+        private Result(String text, int[] starts, int[] ends, int[] originalStarts, int[] originalEnds) {
+            this.text = text;
+            this.starts = starts;
+            this.ends = ends;
+            this.originalStarts = originalStarts;
+            this.originalEnds = originalEnds;
+        }
+
+        /** Maps an offset a range starts at to the original text, the start of a replaced span within it. */
+        int originalStart(int offset) {
+            int span = spanOf(offset, false);
+            if(span == -1) {
+                return offset;
+            }
+            return offset < ends[span] ? originalStarts[span] : originalEnds[span] + offset - ends[span];
+        }
+
+        /** Maps an offset a range ends at to the original text, the end of a replaced span within it. */
+        int originalEnd(int offset) {
+            int span = spanOf(offset, true);
+            if(span == -1) {
+                return offset;
+            }
+            return originalEnds[span] + Math.max(0, offset - ends[span]);
+        }
+
+        // the last span that starts before the offset, or at it unless exclusive
+        private int spanOf(int offset, boolean exclusive) {
+            int low = 0;
+            int high = starts.length - 1;
+            int found = -1;
+            while(low <= high) {
+                int middle = (low + high) >>> 1;
+                if(starts[middle] < offset || (!exclusive && starts[middle] == offset)) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found;
+        }
+    }
+
+    private static class Node {
+        // children sorted by character
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        // the phrase ending at this node is replaced with it
+        String replacement;
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node add(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if(index >= 0) {
+                return children[index];
+            }
+            index = -index - 1;
+            Node child = new Node();
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newKeys[index] = key;
+            newChildren[index] = child;
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    private static class Rule {
+        // the group of the combined pattern that wraps the rule's pattern
+        final int group;
+        // the replacement as literals and references to the rule's groups, literals[i] is null for a reference
+        final String[] literals;
+        final int[] references;
+
+        Rule(int group, String[] literals, int[] references) {
+            this.group = group;
+            this.literals = literals;
+            this.references = references;
+        }
+    }
+
+    private final Node lexicon = new Node();
+    private final boolean ignoreCase;
+    private final Pattern pattern;
+    private final Rule[] rules;
+    private final int entryCount;
+
+    private final LinkedHashMap<String, Result> memo;
+
+    private final long compileTime;
+    private long hits = 0;
+    private long misses = 0;
+    // in microseconds
+    private final LatencyHistogram normalizeTime = new LatencyHistogram();
+
+    /**
+     * Compiles the lexicon, phrase to replacement, and the rules, pairs of a pattern and its
+     * replacement in which $n stands for the n-th group of the pattern. Throws an
+     * IllegalArgumentException if a rule does not compile, or turns on the comments flag,
+     * which does not combine with the other rules.
+     */
+    TextNormalizer(Map<String, String> lexicon, List<String[]> rules, boolean ignoreCase, final int memoSize) {
+        long startedAt = System.nanoTime();
+        this.ignoreCase = ignoreCase;
+        int entries = 0;
+        for(Map.Entry<String, String> entry: lexicon.entrySet()) {
+            String phrase = entry.getKey();
+            if(phrase.isEmpty()) {
+                continue;
+            }
+            Node node = this.lexicon;
+            for(int i = 0; i < phrase.length(); i++) {
+                node = node.add(fold(phrase.charAt(i)));
+            }
+            node.replacement = entry.getValue();
+            entries++;
+        }
+        entryCount = entries;
+
+        this.rules = new Rule[rules.size()];
+        StringBuilder combined = new StringBuilder();
+        int group = 1;
+        for(int i = 0; i < this.rules.length; i++) {
+            String source = rules.get(i)[0];
+            Pattern rule = Pattern.compile(source);
+            int groupCount = rule.matcher("").groupCount();
+            this.rules[i] = compileReplacement(group, groupCount, rules.get(i)[1]);
+            if(i > 0) {
+                combined.append('|');
+            }
+            // in a group of its own, which also keeps its inline flags from applying to the rules after it
+            combined.append('(').append(shiftReferences(source, group)).append(')');
+            group += groupCount + 1;
+        }
+        int flags = ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+        pattern = this.rules.length > 0 ? Pattern.compile(combined.toString(), flags) : null;
+
+        memo = new LinkedHashMap<String, Result>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+                return size() > memoSize;
+            }
+        };
+        compileTime = System.nanoTime() - startedAt;
+    }
+
+    boolean isEmpty() {
+        return entryCount == 0 && rules.length == 0;
+    }
+
+    Result normalize(String text) {
+        long startedAt = System.nanoTime();
+        Result result = memo.get(text);
+        if(result != null) {
+            hits++;
+        } else {
+            misses++;
+            result = rewrite(text);
+            memo.put(text, result);
+        }
+        normalizeTime.record((System.nanoTime() - startedAt) / 1000);
+        return result;
+    }
+
+    WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putInt("entries", entryCount);
+        stats.putInt("rules", rules.length);
+        stats.putDouble("compileTime", compileTime / 1000000.0);
+        stats.putDouble("hits", hits);
+        stats.putDouble("misses", misses);
+        stats.putMap("normalizeTime", SpeechMetrics.histogramToMap(normalizeTime));
+        return stats;
+    }
+
+    private Result rewrite(String text) {
+        StringBuilder builder = null;
+        ArrayList<int[]> spans = new ArrayList<int[]>();
+        Matcher matcher = pattern != null ? pattern.matcher(text) : null;
+        // start of the next match of the rules at or after the position, text.length() if none
+        int ruleStart = -1;
+        int copiedUpTo = 0;
+        int position = 0;
+        while(position < text.length()) {
+            int end = -1;
+            String replacement = null;
+            if(isWordStart(text, position)) {
+                Node node = lexicon;
+                for(int i = position; i < text.length(); i++) {
+                    node = node.child(fold(text.charAt(i)));
+                    if(node == null) {
+                        break;
+                    }
+                    if(node.replacement != null && isWordEnd(text, i + 1)) {
+                        end = i + 1;
+                        replacement = node.replacement;
+                    }
+                }
+            }
+            if(end == -1 && matcher != null) {
+                if(ruleStart < position) {
+                    ruleStart = findRule(matcher, position, text.length());
+                }
+                if(ruleStart == position) {
+                    end = matcher.end();
+                    replacement = replace(matcher);
+                }
+            }
+            if(end == -1) {
+                position++;
+                continue;
+            }
+            if(builder == null) {
+                builder = new StringBuilder(text.length() + 16);
+            }
+            builder.append(text, copiedUpTo, position);
+            int start = builder.length();
+            builder.append(replacement);
+            spans.add(new int[] { start, builder.length(), position, end });
+            copiedUpTo = end;
+            position = end;
+        }
+        if(builder == null) {
+            return new Result(text, new int[0], new int[0], new int[0], new int[0]);
+        }
+        builder.append(text, copiedUpTo, text.length());
+        int[] starts = new int[spans.size()];
+        int[] ends = new int[spans.size()];
+        int[] originalStarts = new int[spans.size()];
+        int[] originalEnds = new int[spans.size()];
+        for(int i = 0; i < starts.length; i++) {
+            int[] span = spans.get(i);
+            starts[i] = span[0];
+            ends[i] = span[1];
+            originalStarts[i] = span[2];
+            originalEnds[i] = span[3];
+        }
+        return new Result(builder.toString(), starts, ends, originalStarts, originalEnds);
+    }
+
+    // empty matches replace nothing, they are skipped
+    private static int findRule(Matcher matcher, int from, int length) {
+        while(from <= length && matcher.find(from)) {
+            if(matcher.end() > matcher.start()) {
+                return matcher.start();
+            }
+            from = matcher.start() + 1;
+        }
+        return length;
+    }
+
+    private String replace(Matcher matcher) {
+        Rule rule = null;
+        for(Rule candidate: rules) {
+            if(matcher.start(candidate.group) != -1) {
+                rule = candidate;
+                break;
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < rule.literals.length; i++) {
+            if(rule.literals[i] != null) {
+                builder.append(rule.literals[i]);
+            } else {
+                String value = matcher.group(rule.group + rule.references[i]);
+                if(value != null) {
+                    builder.append(value);
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the source of a rule with its numbered back references shifted by the number
+     * of groups in front of it in the combined pattern. A reference is put in a group of its
+     * own, so that the digits after it are not taken for part of the shifted number.
+     */
+    private static String shiftReferences(String source, int shift) {
+        StringBuilder builder = new StringBuilder(source.length() + 16);
+        // groups opened so far, a reference only takes as many digits as name one of them
+        int groups = 0;
+        // depth of the character classes the position is in
+        int classes = 0;
+        int i = 0;
+        while(i < source.length()) {
+            char c = source.charAt(i);
+            if(c == '\\' && i + 1 < source.length()) {
+                char next = source.charAt(i + 1);
+                if(next == 'Q') {
+                    int end = source.indexOf("\\E", i + 2);
+                    end = end == -1 ? source.length() : end + 2;
+                    builder.append(source, i, end);
+                    i = end;
+                } else if(classes == 0 && next >= '1' && next <= '9') {
+                    int reference = next - '0';
+                    i += 2;
+                    while(i < source.length() && Character.isDigit(source.charAt(i))
+                            && reference * 10 + Character.digit(source.charAt(i), 10) <= groups) {
+                        reference = reference * 10 + Character.digit(source.charAt(i), 10);
+                        i++;
+                    }
+                    builder.append("(?:\\").append(reference + shift).append(')');
+                } else if(next == 'c' && i + 2 < source.length()) {
+                    // a control character, whatever the character naming it
+                    builder.append(source, i, i + 3);
+                    i += 3;
+                } else {
+                    builder.append(c).append(next);
+                    i += 2;
+                }
+                continue;
+            }
+            if(c == '[') {
+                classes++;
+                builder.append(c);
+                i++;
+                // a bracket right after the opening one, or its negation, is literal
+                if(i < source.length() && source.charAt(i) == '^') {
+                    builder.append('^');
+                    i++;
+                }
+                if(i < source.length() && source.charAt(i) == ']') {
+                    builder.append(']');
+                    i++;
+                }
+                continue;
+            }
+            if(c == ']' && classes > 0) {
+                classes--;
+            } else if(c == '(' && classes == 0) {
+                if(!source.startsWith("?", i + 1)) {
+                    groups++;
+                } else if(source.startsWith("?<", i + 1) && !source.startsWith("?<=", i + 1) && !source.startsWith("?<!", i + 1)) {
+                    groups++;
+                } else if(turnsOnComments(source, i + 2)) {
+                    throw new IllegalArgumentException("The comments flag is not supported in the rule " + source);
+                }
+            }
+            builder.append(c);
+            i++;
+        }
+        return builder.toString();
+    }
+
+    // whether the flags of the group at the position, if any, turn on the comments flag
+    private static boolean turnsOnComments(String source, int position) {
+        for(int i = position; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if(c == 'x') {
+                return true;
+            }
+            if("idmsuU".indexOf(c) == -1) {
+                // the flags that are turned off follow a minus, or it is another kind of group
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static Rule compileReplacement(int group, int groupCount, String replacement) {
+        ArrayList<String> literals = new ArrayList<String>();
+        ArrayList<Integer> references = new ArrayList<Integer>();
+        StringBuilder literal = new StringBuilder();
+        for(int i = 0; i < replacement.length(); i++) {
+            char c = replacement.charAt(i);
+            if(c == '\\' && i + 1 < replacement.length()) {
+                literal.append(replacement.charAt(++i));
+            } else if(c == '$' && i + 1 < replacement.length() && Character.isDigit(replacement.charAt(i + 1))) {
+                // as many digits as still name a group of the rule
+                int reference = Character.digit(replacement.charAt(++i), 10);
+                while(i + 1 < replacement.length() && Character.isDigit(replacement.charAt(i + 1))
+                        && reference * 10 + Character.digit(replacement.charAt(i + 1), 10) <= groupCount) {
+                    reference = reference * 10 + Character.digit(replacement.charAt(++i), 10);
+                }
+                if(reference > groupCount) {
+                    throw new IllegalArgumentException("No group " + reference + " in the rule for " + replacement);
+                }
+                if(literal.length() > 0) {
+                    literals.add(literal.toString());
+                    references.add(-1);
+                    literal.setLength(0);
+                }
+                literals.add(null);
+                references.add(reference);
+            } else {
+                literal.append(c);
+            }
+        }
+        if(literal.length() > 0) {
+            literals.add(literal.toString());
+            references.add(-1);
+        }
+        int[] referenceArray = new int[references.size()];
+        for(int i = 0; i < referenceArray.length; i++) {
+            referenceArray[i] = references.get(i);
+        }
+        return new Rule(group, literals.toArray(new String[literals.size()]), referenceArray);
+    }
+
+    private char fold(char c) {
+        return ignoreCase ? Character.toLowerCase(c) : c;
+    }
+
+    private static boolean isWordStart(String text, int position) {
+        return position == 0 || !Character.isLetterOrDigit(text.charAt(position - 1))
+                || !Character.isLetterOrDigit(text.charAt(position));
+    }
+
+    private static boolean isWordEnd(String text, int position) {
+        return position == text.length() || !Character.isLetterOrDigit(text.charAt(position))
+                || !Character.isLetterOrDigit(text.charAt(position - 1));
+    }
+}
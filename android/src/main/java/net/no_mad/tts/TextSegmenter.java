@@ -0,0 +1,92 @@
+package net.no_mad.tts;
+
+import java.text.BreakIterator;
+import java.util.Locale;
+
+/**
+ * Splits text into sentence sized segments that can be spoken one after another.
+ *
+ * Sentences longer than the limit are split further at the last clause
+ * punctuation, or the last whitespace, that fits into the limit.
+ */
+final class TextSegmenter {
+
+    private TextSegmenter() {
+    }
+
+    /**
+     * Returns the segment boundaries as offsets into the text: segment i spans from
+     * bounds[i] to bounds[i + 1]. Whitespace between sentences stays with the
+     * preceding segment, so the segments cover the whole text.
+     */
+    static int[] split(String text, int maxLength, Locale locale) {
+        IntList bounds = new IntList();
+        bounds.add(0);
+
+        BreakIterator sentences = BreakIterator.getSentenceInstance(locale);
+        sentences.setText(text);
+        int start = sentences.first();
+        for(int end = sentences.next(); end != BreakIterator.DONE; start = end, end = sentences.next()) {
+            while(end - start > maxLength) {
+                start = splitClause(text, start, start + maxLength);
+                // a surrogate pair kept whole may take up the rest of the sentence
+                if(start < end) {
+                    bounds.add(start);
+                }
+            }
+            bounds.add(end);
+        }
+
+        if(bounds.size() == 1) {
+            bounds.add(text.length());
+        }
+        return bounds.toArray();
+    }
+
+    // returns the end of the longest clause that starts at start and ends before limit, always after start
+    private static int splitClause(String text, int start, int limit) {
+        int whitespace = -1;
+        for(int i = limit - 1; i > start; i--) {
+            char c = text.charAt(i);
+            if(c == ',' || c == ';' || c == ':' || c == '\u2014' || c == ')') {
+                return i + 1;
+            }
+            if(whitespace == -1 && Character.isWhitespace(c)) {
+                whitespace = i + 1;
+            }
+        }
+        if(whitespace != -1) {
+            return whitespace;
+        }
+        // a single word longer than the limit, do not cut a surrogate pair in half
+        if(Character.isLowSurrogate(text.charAt(limit))) {
+            // the pair goes whole into the segment if it alone is longer than the limit
+            return limit - 1 > start ? limit - 1 : limit + 1;
+        }
+        return limit;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        void add(int value) {
+            if(size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            int[] array = new int[size];
+            System.arraycopy(values, 0, array, 0, size);
+            return array;
+        }
+    }
+}
@@ -2,7 +2,11 @@ package net.no_mad.tts;
 
 import android.media.AudioManager;
 import android.os.Build;
+import android.os.Debug;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
 import android.content.Intent;
 import android.content.ActivityNotFoundException;
 import android.app.Activity;
@@ -10,124 +14,566 @@ import android.net.Uri;
 import android.speech.tts.TextToSpeech;
 import android.speech.tts.UtteranceProgressListener;
 import android.speech.tts.Voice;
+import android.util.Base64;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import com.facebook.react.bridge.*;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class TextToSpeechModule extends ReactContextBaseJavaModule {
+/**
+ * The module behind index.js on Android. It extends TextToSpeechSpec, the interface generated
+ * from src/NativeTextToSpeech.js with the new architecture and its hand written counterpart
+ * for the bridge otherwise, so the same class is a TurboModule or a bridge module.
+ */
+public class TextToSpeechModule extends TextToSpeechSpec implements LifecycleEventListener {
 
-    private TextToSpeech tts;
-    private Boolean ready = null;
+    static final String NAME = "TextToSpeech";
+
+
+    // the engine is only ever called on this thread, as are the fields that track what is
+    // queued on it, so that a slow engine does not block the other native modules
+    private final HandlerThread engineThread;
+    private final Handler engineHandler;
+
+    private EnginePool enginePool;
+    // the engine the settings apply to, and that speaks utterances that do not name one
+    private EnginePool.Engine defaultEngine;
+    // resolved once the engine chosen by setDefaultEngine() is initialized
+    private Promise defaultEnginePromise = null;
     private ArrayList<Promise> initStatusPromises;
 
+    private static final int MAX_PENDING_OPERATIONS = 100;
+
+    // calls made while the engine initializes, run once it is ready
+    private final ArrayList<PendingOperation> pendingOperations = new ArrayList<PendingOperation>();
+
+    private static class PendingOperation {
+        final Runnable operation;
+        final Promise promise;
+
+        PendingOperation(Runnable operation, Promise promise) {
+            this.operation = operation;
+            this.promise = promise;
+        }
+    }
+
     private boolean ducking = false;
-    private AudioManager audioManager;
-    private AudioManager.OnAudioFocusChangeListener afChangeListener;
+    private AudioFocusManager audioFocus;
+
+    private static final String CACHE_DIRECTORY = "tts-cache";
+    private static final String CACHE_UTTERANCE_PREFIX = "cache-";
+    private static final long DEFAULT_CACHE_SIZE = 32 * 1024 * 1024;
+
+    private boolean cacheEnabled = false;
+    private AudioCache audioCache;
+    // synthesizeToFile utterance id -> cache key of the file being rendered
+    private Map<String, String> cacheRenders = new ConcurrentHashMap<String, String>();
+    // synthesizeToFile utterance id -> word ranges reported while rendering the file
+    private Map<String, TimingIndex.Builder> renderTimings = new ConcurrentHashMap<String, TimingIndex.Builder>();
+
+    private static final String PRE_RENDER_DIRECTORY = "tts-prerender";
+    private static final String PRE_RENDER_EARCON_PREFIX = "prerender-";
+    private static final int DEFAULT_PRE_RENDER_COUNT = 2;
+    private static final long DEFAULT_PRE_RENDER_SIZE = 8 * 1024 * 1024;
+
+    // renders utterances ahead of the engine, null when disabled
+    private PreRenderer preRenderer = null;
+    // number of waiting utterances rendered ahead
+    private int preRenderCount = DEFAULT_PRE_RENDER_COUNT;
+    // request id -> replay of the word ranges of the pre-rendered file being played
+    private final Map<String, Runnable> rangeReplays = new HashMap<String, Runnable>();
+
+    // exports to file in progress, by export id
+    private final Map<String, Exporter> exports = new ConcurrentHashMap<String, Exporter>();
+
+    private static final int DEFAULT_BUFFER_CHUNK_SIZE = 32 * 1024;
+
+    // synthesizeToBuffer() calls being rendered or streamed, by buffer id
+    private final Map<String, Exporter> buffers = new ConcurrentHashMap<String, Exporter>();
+
+    // engines that fail are restarted after a delay that doubles with every restart
+    private static final long RECOVERY_BASE_DELAY = 500;
+    private static final long RECOVERY_MAX_DELAY = 30 * 1000;
+    private static final int MAX_RECOVERY_RESTARTS = 6;
+
+    private static final long DEFAULT_BACKGROUND_TIMEOUT = 5 * 60 * 1000;
+    // the engine service lets go of its memory a while after being unbound
+    private static final long RELEASE_MEMORY_DELAY = 2000;
+
+    // whether the engines are released once the app has been in the background for the timeout
+    private boolean releaseInBackground = false;
+    private long backgroundTimeout = DEFAULT_BACKGROUND_TIMEOUT;
+    private boolean inBackground = false;
+
+    private final Runnable releaseRunnable = new Runnable() {
+        @Override
+        public void run() {
+            releaseEngines();
+        }
+    };
+
+    // rewrites texts before they are spoken, null when no lexicon or rules are set
+    private TextNormalizer normalizer = null;
+
+    // returned by speak() for utterances dropped by the admission filter
+    private static final int ERROR_DROPPED = -100;
+
+    private final AdmissionFilter admission = new AdmissionFilter();
+
+    private final AtomicLong lastUtteranceId = new AtomicLong();
+    // utterances accepted by speak() that have not finished yet, by utterance id
+    private final Map<String, Utterance> utterances = new ConcurrentHashMap<String, Utterance>();
+
+    private static final int LEGACY_MAX_SPEECH_INPUT_LENGTH = 4000;
+    private static final int DEFAULT_SEGMENT_LENGTH = 300;
+    private static final int DEFAULT_LOOK_AHEAD = 2;
+
+    private boolean segmentationEnabled = false;
+    private int segmentLength = DEFAULT_SEGMENT_LENGTH;
+    private int lookAhead = DEFAULT_LOOK_AHEAD;
+
+    // utterances waiting for room on the engine
+    private final UtteranceQueue waiting = new UtteranceQueue();
+    // utterances with segments queued on the engine, in the order they were queued
+    private final ArrayList<Utterance> queued = new ArrayList<Utterance>();
+    // the utterance whose remaining segments are queued before any other utterance
+    private Utterance feeding = null;
+    // number of segments queued on the engine, at most lookAhead
+    private int queuedSegments = 0;
+    // the engine the segments are queued on, engines speak independently so only one has any at a time
+    private EnginePool.Engine queuedEngine = null;
+    // nothing is queued on the engine while paused
+    private boolean paused = false;
+    // the utterance that was being spoken when paused
+    private Utterance pausedUtterance = null;
+    // paused because another app took the audio focus for a while, resumed when it is back
+    private boolean pausedByFocusLoss = false;
+
+    private final SpeechMetrics metrics = new SpeechMetrics();
+    // sends the metrics on the engine thread every metricsInterval, never when 0
+    private long metricsInterval = 0;
+    private final Runnable metricsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sendEvent("tts-metrics", metrics.toMap());
+            engineHandler.postDelayed(this, metricsInterval);
+        }
+    };
 
-    private Map<String, Locale> localeCountryMap;
-    private Map<String, Locale> localeLanguageMap;
+    private final EventDispatcher eventDispatcher = new EventDispatcher(new EventDispatcher.Emitter() {
+        @Override
+        public void emit(String eventName, WritableMap params) {
+            sendEvent(eventName, params);
+        }
+    });
 
     public TextToSpeechModule(ReactApplicationContext reactContext) {
         super(reactContext);
-        audioManager = (AudioManager) reactContext.getApplicationContext().getSystemService(reactContext.AUDIO_SERVICE);
-        initStatusPromises = new ArrayList<Promise>();
-        //initialize ISO3, ISO2 languague country code mapping.
-        initCountryLanguageCodeMapping();
+        engineThread = new HandlerThread("TextToSpeech");
+        engineThread.start();
+        engineHandler = new Handler(engineThread.getLooper());
 
-        tts = new TextToSpeech(getReactApplicationContext(), new TextToSpeech.OnInitListener() {
+        AudioManager audioManager = (AudioManager) reactContext.getApplicationContext().getSystemService(reactContext.AUDIO_SERVICE);
+        audioFocus = new AudioFocusManager(audioManager, new AudioFocusManager.Listener() {
             @Override
-            public void onInit(int status) {
-                synchronized(initStatusPromises) {
-                    ready = (status == TextToSpeech.SUCCESS) ? Boolean.TRUE : Boolean.FALSE;
-                    for(Promise p: initStatusPromises) {
-                        resolveReadyPromise(p);
+            public void onFocusLost(final boolean transientLoss) {
+                runOnEngineThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(transientLoss) {
+                            pausedByFocusLoss = pauseSpeaking();
+                        } else {
+                            stopSpeaking();
+                        }
                     }
-                    initStatusPromises.clear();
-                }
+                });
+            }
+
+            @Override
+            public void onFocusGained() {
+                runOnEngineThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(pausedByFocusLoss) {
+                            pausedByFocusLoss = false;
+                            resumeSpeaking();
+                        }
+                    }
+                });
+            }
+        });
+        initStatusPromises = new ArrayList<Promise>();
+
+        enginePool = new EnginePool(reactContext, engineHandler, new EnginePool.Listener() {
+            @Override
+            public void onCreated(EnginePool.Engine engine) {
+                setUtteranceProgress(engine.tts);
+            }
+
+            @Override
+            public void onInit(EnginePool.Engine engine, int status, long initTime) {
+                onEngineInit(engine, status, initTime);
+            }
+
+            @Override
+            public boolean isInUse(EnginePool.Engine engine) {
+                return isEngineInUse(engine);
+            }
+        });
+
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                defaultEngine = enginePool.get(null);
             }
         });
+        reactContext.addLifecycleEventListener(this);
+    }
+
+    private void runOnEngineThread(Runnable runnable) {
+        engineHandler.post(runnable);
+    }
+
+    private void onEngineInit(EnginePool.Engine engine, int status, long initTime) {
+        if(status == TextToSpeech.SUCCESS) {
+            metrics.recordEngineInit(engine.name, initTime);
+        }
+        if(engine.restoreStartedAt != 0) {
+            // the settings are applied with the first request queued on it, as after a recovery
+            if(status == TextToSpeech.SUCCESS) {
+                metrics.recordRestore(engine.name, SystemClock.elapsedRealtime() - engine.restoreStartedAt);
+            }
+            engine.restoreStartedAt = 0;
+        }
+        if(engine.failedAt != 0) {
+            if(status == TextToSpeech.SUCCESS) {
+                // the new instance gets the settings with the first request queued on it
+                metrics.recordRecovery(engine.name, SystemClock.elapsedRealtime() - engine.failedAt);
+                engine.failedAt = 0;
+            } else if(engine.restarts < MAX_RECOVERY_RESTARTS) {
+                // calls and utterances keep waiting for the engine
+                engine.ready = null;
+                scheduleRestart(engine);
+                return;
+            } else {
+                // what is waiting for the engine fails, as when it fails to initialize the first time
+                metrics.recordRecoveryFailure();
+                engine.failedAt = 0;
+            }
+        }
+        if(engine == defaultEngine) {
+            for(Promise p: initStatusPromises) {
+                resolveReadyPromise(p);
+            }
+            initStatusPromises.clear();
+            if(defaultEnginePromise != null) {
+                defaultEnginePromise.resolve(engine.ready);
+                defaultEnginePromise = null;
+            }
+            runPendingOperations();
+        }
+        // utterances for the engine wait for it to initialize
+        fill();
+    }
+
+    /**
+     * Takes what is queued on the failed engine back and restarts it after a delay, the
+     * utterances are queued again once it is initialized, starting with the word that was
+     * interrupted. Returns false if the engine was restarted too many times without
+     * speaking anything, in which case the caller fails the utterance.
+     */
+    private boolean recover(EnginePool.Engine engine) {
+        if(engine.failedAt != 0) return true;
+        if(engine.restarts >= MAX_RECOVERY_RESTARTS) return false;
+
+        engine.failedAt = SystemClock.elapsedRealtime();
+        if(engine == queuedEngine) {
+            // takeBack() only puts back the utterances that have segments queued
+            if(feeding != null && !queued.contains(feeding)) {
+                waiting.addFirst(feeding);
+                feeding = null;
+            }
+            takeBack();
+            // cache renders are only queued along with segments, the engine does not report back on them
+            discardCacheRenders();
+        }
+        // nothing is queued on the engine, and calls wait for it, until it is initialized again
+        engine.ready = null;
+        scheduleRestart(engine);
+        return true;
+    }
+
+    private void scheduleRestart(final EnginePool.Engine engine) {
+        long delay = Math.min(RECOVERY_BASE_DELAY << engine.restarts, RECOVERY_MAX_DELAY);
+        engineHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if(engine.failedAt == 0) return;
+                if(!isEngineInUse(engine)) {
+                    // nobody waits for it any more, the pool creates a new one when needed
+                    engine.failedAt = 0;
+                    engine.ready = Boolean.FALSE;
+                    return;
+                }
+                enginePool.restart(engine);
+            }
+        }, delay);
+    }
+
+    /**
+     * Brings the engine instance in line with the settings before a request is queued on
+     * it. The engine speaks every request with the settings it had when the request was
+     * queued, so utterances with settings of their own do not affect the others. Only the
+     * settings that differ from the ones last applied are set.
+     *
+     * The settings can not go with the request's params instead: the platform has no params
+     * for the voice, rate or pitch, only the engine-specific ones that engines are free to
+     * ignore, so the engine is set before the request is queued.
+     */
+    private void applySettings(EnginePool.Engine engine, VoiceSettings settings) {
+        VoiceSettings applied = engine.applied;
+        if(settings.equals(applied)) return;
 
-        setUtteranceProgress();
+        TextToSpeech tts = engine.tts;
+        if(applied == null || settings.voiceDiffers(applied)) {
+            Voice voice = Build.VERSION.SDK_INT >= 21 ? findVoice(engine, settings) : null;
+            try {
+                if(voice != null) {
+                    tts.setVoice(voice);
+                } else if(settings.language != null) {
+                    tts.setLanguage(LocaleCodes.toLocale(settings.language));
+                } else if(Build.VERSION.SDK_INT >= 21 && tts.getDefaultVoice() != null) {
+                    // back to what the engine speaks with by default
+                    tts.setVoice(tts.getDefaultVoice());
+                } else {
+                    tts.setLanguage(Locale.getDefault());
+                }
+            } catch (Exception e) {
+              // Purposefully ignore exceptions here due to some buggy TTS engines.
+              // See http://stackoverflow.com/questions/26730082/illegalargumentexception-invalid-int-os-with-samsung-tts
+            }
+        }
+        if(applied == null || settings.rate != applied.rate) {
+            tts.setSpeechRate(settings.rate);
+        }
+        if(applied == null || settings.pitch != applied.pitch) {
+            tts.setPitch(settings.pitch);
+        }
+        engine.applied = settings;
+    }
+
+    // returns the voice of the settings, null if they have none or the engine does not have it
+    private Voice findVoice(EnginePool.Engine engine, VoiceSettings settings) {
+        VoiceCatalog catalog = settings.voice != null ? getVoiceCatalog(engine) : null;
+        return catalog != null ? catalog.get(settings.voice) : null;
+    }
+
+    private boolean isEngineInUse(EnginePool.Engine engine) {
+        if(engine == defaultEngine) return true;
+        for(Utterance utterance: utterances.values()) {
+            if(utterance.engine == engine) return true;
+        }
+        return false;
     }
 
-    private void setUtteranceProgress() {
+    // the engine calls back on its own threads, the callbacks are handled on the engine thread
+    private void setUtteranceProgress(TextToSpeech tts) {
         if(tts != null)
         {
             tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
                 @Override
-                public void onStart(String utteranceId) {
-                    sendEvent("tts-start", utteranceId);
+                public void onStart(final String requestId) {
+                    final long now = SystemClock.elapsedRealtime();
+                    runOnEngineThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            if(cacheRenders.containsKey(requestId)) return;
+                            Utterance utterance = getUtterance(requestId);
+                            if(utterance == null) return;
+                            if(preRenderer != null && preRenderer.getTimings(requestId) != null) {
+                                replayRanges(requestId, preRenderer.getTimings(requestId), now);
+                            }
+                            if(utterance.started) return;
+                            utterance.started = true;
+                            utterance.startedAt = now;
+                            eventDispatcher.sendEvent("tts-start", utterance.id);
+                        }
+                    });
+                }
+
+                @Override
+                public void onDone(final String requestId) {
+                    runOnEngineThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            releasePreRendered(requestId);
+                            String cacheKey = cacheRenders.remove(requestId);
+                            if(cacheKey != null) {
+                                audioCache.commit(cacheKey, renderTimings.remove(requestId));
+                                return;
+                            }
+                            onSegmentDone(requestId);
+                        }
+                    });
                 }
 
                 @Override
-                public void onDone(String utteranceId) {
-                    if(ducking) {
-                        audioManager.abandonAudioFocus(afChangeListener);
-                    }
-                    sendEvent("tts-finish", utteranceId);
+                @SuppressWarnings("deprecation")
+                public void onError(String requestId) {
+                    onError(requestId, TextToSpeech.ERROR);
                 }
 
                 @Override
-                public void onError(String utteranceId) {
-                    if(ducking) {
-                        audioManager.abandonAudioFocus(afChangeListener);
-                    }
-                    sendEvent("tts-error", utteranceId);
+                public void onError(final String requestId, final int errorCode) {
+                    runOnEngineThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            releasePreRendered(requestId);
+                            if(discardCacheRender(requestId)) return;
+                            Utterance utterance = getUtterance(requestId);
+                            if(utterance == null) return;
+                            if(errorCode == TextToSpeech.ERROR_SERVICE && recover(utterance.engine)) {
+                                fill();
+                                return;
+                            }
+                            // the failed segment is off the engine, failUtterance() deals with the rest
+                            utterance.queuedSegments--;
+                            queuedSegments--;
+                            failUtterance(utterance, errorCode);
+                        }
+                    });
                 }
 
                 @Override
-                public void onStop(String utteranceId, boolean interrupted) {
-                    if(ducking) {
-                        audioManager.abandonAudioFocus(afChangeListener);
-                    }
-                    sendEvent("tts-cancel", utteranceId);
+                public void onStop(final String requestId, boolean interrupted) {
+                    runOnEngineThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            releasePreRendered(requestId);
+                            if(discardCacheRender(requestId)) return;
+                            Utterance utterance = getUtterance(requestId);
+                            if(utterance != null) {
+                                cancelUtterance(utterance);
+                            }
+                        }
+                    });
                 }
 
                 @Override
-                public void onRangeStart (String utteranceId, int start, int end, int frame) {
-                    WritableMap params = Arguments.createMap();
-                    params.putString("utteranceId", utteranceId);
-                    params.putInt("start", start);
-                    params.putInt("end", end);
-                    params.putInt("frame", frame);
-                    sendEvent("tts-progress", params);
+                public void onRangeStart (final String requestId, final int start, final int end, final int frame) {
+                    final long now = SystemClock.elapsedRealtime();
+                    runOnEngineThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            TimingIndex.Builder timings = renderTimings.get(requestId);
+                            if(timings != null) {
+                                timings.add(start, end, frame);
+                                return;
+                            }
+                            if(cacheRenders.containsKey(requestId)) return;
+                            onSpokenRange(requestId, start, end, frame, now);
+                        }
+                    });
                 }
             });
         }
     }
 
-    private void initCountryLanguageCodeMapping() {
-        String[] countries = Locale.getISOCountries();
-        localeCountryMap = new HashMap<String, Locale>(countries.length);
-        for (String country: countries) {
-            Locale locale = new Locale("", country);
-            localeCountryMap.put(locale.getISO3Country().toUpperCase(), locale);
+    // a word of a segment is being spoken, by the engine or by a file whose ranges are replayed
+    private void onSpokenRange(String requestId, int start, int end, int frame, long now) {
+        Utterance utterance = getUtterance(requestId);
+        int segment = Utterance.segmentOf(requestId);
+        if(utterance == null || segment == -1) return;
+        // report the range within the whole utterance rather than within the segment
+        int offset = utterance.bounds[segment];
+        utterance.spokenOffset = offset + start;
+        if(utterance.firstWordAt == 0) {
+            utterance.firstWordAt = now;
+        }
+        int rangeStart = offset + start;
+        int rangeEnd = offset + end;
+        if(utterance.normalization != null) {
+            // within the text speak() was called with
+            rangeStart = utterance.normalization.originalStart(rangeStart);
+            rangeEnd = utterance.normalization.originalEnd(rangeEnd);
+        }
+        eventDispatcher.sendProgress(utterance.id, rangeStart, rangeEnd, frame);
+    }
+
+    /**
+     * Reports the word ranges of a pre-rendered file at the times the engine plays them, as
+     * it only reports those of the texts it synthesizes. They are the ranges it reported
+     * while rendering the file, so progress events and the offset resume() starts from are
+     * the same as if the text had been spoken.
+     */
+    private void replayRanges(final String requestId, final TimingIndex timings, final long startedAt) {
+        Runnable replay = new Runnable() {
+            private int next = 0;
+
+            @Override
+            public void run() {
+                long now = SystemClock.elapsedRealtime();
+                while(next < timings.size() && startedAt + timings.time(next) <= now) {
+                    onSpokenRange(requestId, timings.start(next), timings.end(next), timings.frame(next), now);
+                    next++;
+                }
+                if(next < timings.size()) {
+                    engineHandler.postDelayed(this, (long) Math.ceil(startedAt + timings.time(next) - now));
+                } else {
+                    rangeReplays.remove(requestId);
+                }
+            }
+        };
+        cancelRangeReplay(requestId);
+        rangeReplays.put(requestId, replay);
+        replay.run();
+    }
+
+    private void cancelRangeReplay(String requestId) {
+        Runnable replay = rangeReplays.remove(requestId);
+        if(replay != null) {
+            engineHandler.removeCallbacks(replay);
         }
-        String[] languages = Locale.getISOLanguages();
-        localeLanguageMap = new HashMap<String, Locale>(languages.length);
-        for (String language: languages) {
-            Locale locale = new Locale(language);
-            localeLanguageMap.put(locale.getISO3Language(), locale);
+    }
+
+    private boolean discardCacheRender(String utteranceId) {
+        renderTimings.remove(utteranceId);
+        String cacheKey = cacheRenders.remove(utteranceId);
+        if(cacheKey == null) return false;
+        audioCache.discard(cacheKey);
+        return true;
+    }
+
+    private void releasePreRendered(String requestId) {
+        cancelRangeReplay(requestId);
+        if(preRenderer != null) {
+            preRenderer.release(requestId);
         }
     }
 
-    private String iso3CountryCodeToIso2CountryCode(String iso3CountryCode) {
-        return localeCountryMap.get(iso3CountryCode).getCountry();
+    private void discardCacheRenders() {
+        for(String renderId: cacheRenders.keySet()) {
+            discardCacheRender(renderId);
+        }
     }
 
-    private String iso3LanguageCodeToIso2LanguageCode(String iso3LanguageCode) {
-        return localeLanguageMap.get(iso3LanguageCode).getLanguage();
+    private static void rejectCancelled(Promise promise) {
+        promise.reject("cancelled", "The utterance was stopped before it finished");
     }
 
     private void resolveReadyPromise(Promise promise) {
-        if (ready == Boolean.TRUE) {
+        if (defaultEngine.ready == Boolean.TRUE) {
             promise.resolve("success");
         }
         else {
@@ -173,6 +619,9 @@ public class TextToSpeechModule extends ReactContextBaseJavaModule {
             case TextToSpeech.LANG_NOT_SUPPORTED:
                 promise.reject("lang_not_supported", "Language is not supported");
                 break;
+            case ERROR_DROPPED:
+                promise.reject("dropped", "Too many utterances, the rate limit was exceeded");
+                break;
             default:
                 promise.reject("error", "Unknown error code: " + statusCode);
                 break;
@@ -191,226 +640,1321 @@ public class TextToSpeechModule extends ReactContextBaseJavaModule {
 
     @Override
     public String getName() {
-        return "TextToSpeech";
+        return NAME;
     }
 
     @ReactMethod
-    public void getInitStatus(Promise promise) {
-        synchronized(initStatusPromises) {
-            if(ready == null) {
-                initStatusPromises.add(promise);
-            } else {
-                resolveReadyPromise(promise);
+    public void getInitStatus(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                enginePool.restore(defaultEngine);
+                if(defaultEngine.ready == null) {
+                    initStatusPromises.add(promise);
+                } else {
+                    resolveReadyPromise(promise);
+                }
             }
-        }
+        });
     }
 
     @ReactMethod
-    public void speak(String utterance, ReadableMap params, Promise promise) {
-        if(notReady(promise)) return;
+    public void speak(final String utterance, final ReadableMap params, final Promise promise) {
+        // the time spent waiting for the engine thread counts towards the queue wait
+        final long acceptedAt = SystemClock.elapsedRealtime();
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
 
-        if(ducking) {
-            // Request audio focus for playback
-            int amResult = audioManager.requestAudioFocus(afChangeListener,
-                                                          // Use the music stream.
-                                                          AudioManager.STREAM_MUSIC,
-                                                          // Request permanent focus.
-                                                          AudioManager.AUDIOFOCUS_GAIN_TRANSIENT_MAY_DUCK);
+                SpeakRequest request = validate(params, promise);
+                if(request == null) return;
 
-            if(amResult != AudioManager.AUDIOFOCUS_REQUEST_GRANTED) {
-                promise.reject("Android AudioManager error, failed to request audio focus");
-                return;
+                Utterance accepted = createUtterance(utterance, params, request.priority, null, acceptedAt);
+
+                int speakResult = speak(accepted, request.engine);
+                if(speakResult == TextToSpeech.SUCCESS) {
+                    promise.resolve(idOf(accepted));
+                } else {
+                    resolvePromiseWithStatusCode(speakResult, promise);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as speak(), but the promise is resolved with the utterance id only once the
+     * utterance has been spoken. It is rejected if the utterance fails or is stopped.
+     */
+    @ReactMethod
+    public void speakAndWait(final String utterance, final ReadableMap params, final Promise promise) {
+        final long acceptedAt = SystemClock.elapsedRealtime();
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                SpeakRequest request = validate(params, promise);
+                if(request == null) return;
+
+                int speakResult = speak(createUtterance(utterance, params, request.priority, promise, acceptedAt), request.engine);
+                if(speakResult != TextToSpeech.SUCCESS) {
+                    resolvePromiseWithStatusCode(speakResult, promise);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds all the utterances to the queue in a single call and resolves with the list
+     * of their ids. Every item is a map with an "utterance" string and optional "params",
+     * which are the same as the params of speak(). If an item fails, the promise is
+     * rejected and the items before it remain queued.
+     */
+    @ReactMethod
+    public void speakBatch(final ReadableArray items, final Promise promise) {
+        final long acceptedAt = SystemClock.elapsedRealtime();
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                // all of them before any is queued, so that a malformed batch is not spoken in part
+                for(int i = 0; i < items.size(); i++) {
+                    String problem = checkBatchItem(items, i);
+                    if(problem != null) {
+                        promise.reject("invalid_request", "Item " + i + " of the batch " + problem);
+                        return;
+                    }
+                }
+
+                WritableArray utteranceIds = Arguments.createArray();
+                ReadableMap noParams = Arguments.createMap();
+
+                for(int i = 0; i < items.size(); i++) {
+                    ReadableMap item = items.getMap(i);
+                    String utterance = item.getString("utterance");
+                    ReadableMap params = item.hasKey("params") && !item.isNull("params") ? item.getMap("params") : noParams;
+
+                    SpeakRequest request = validate(params, promise);
+                    if(request == null) return;
+
+                    Utterance accepted = createUtterance(utterance, params, request.priority, null, acceptedAt);
+
+                    int speakResult = speak(accepted, request.engine);
+                    if(speakResult != TextToSpeech.SUCCESS) {
+                        resolvePromiseWithStatusCode(speakResult, promise);
+                        return;
+                    }
+                    utteranceIds.pushString(idOf(accepted));
+                }
+
+                promise.resolve(utteranceIds);
             }
+        });
+    }
+
+    // returns what is wrong with the item of the batch, or null if it can be spoken
+    private static String checkBatchItem(ReadableArray items, int index) {
+        if(items.getType(index) != ReadableType.Map) {
+            return "is not an object";
         }
+        ReadableMap item = items.getMap(index);
+        if(!item.hasKey("utterance") || item.getType("utterance") != ReadableType.String) {
+            return "has no utterance";
+        }
+        if(item.hasKey("params") && !item.isNull("params") && item.getType("params") != ReadableType.Map) {
+            return "has params that are not an object";
+        }
+        return null;
+    }
 
-        String utteranceId = Integer.toString(utterance.hashCode());
+    // the engine and priority an utterance is spoken with
+    private static class SpeakRequest {
+        final EnginePool.Engine engine;
+        final int priority;
 
-        int speakResult = speak(utterance, utteranceId, params);
-        if(speakResult == TextToSpeech.SUCCESS) {
-            promise.resolve(utteranceId);
-        } else {
-            resolvePromiseWithStatusCode(speakResult, promise);
+        SpeakRequest(EnginePool.Engine engine, int priority) {
+            this.engine = engine;
+            this.priority = priority;
         }
     }
 
-    @ReactMethod
-    public void setDefaultLanguage(String language, Promise promise) {
-        if(notReady(promise)) return;
+    /**
+     * Checks the params of an utterance and takes the audio focus for it. Returns the engine
+     * and priority to speak it with, or null once the promise has been rejected.
+     */
+    private SpeakRequest validate(ReadableMap params, Promise promise) {
+        int priority = getPriority(params);
+        if(priority == -1) {
+            promise.reject("invalid_request", "Unknown priority: " + params.getString("priority"));
+            return null;
+        }
 
-        Locale locale = null;
+        EnginePool.Engine engine = getEngine(params);
+        if(engine == null) {
+            promise.reject("not_found", "The selected engine was not found");
+            return null;
+        }
 
-        if(language.indexOf("-") != -1) {
-            String[] parts = language.split("-");
-            locale = new Locale(parts[0], parts[1]);
-        } else {
-            locale = new Locale(language);
+        if(!requestAudioFocus()) {
+            promise.reject("Android AudioManager error, failed to request audio focus");
+            return null;
         }
+        return new SpeakRequest(engine, priority);
+    }
 
-        try {
-          int result = tts.setLanguage(locale);
-          resolvePromiseWithStatusCode(result, promise);
-        } catch (Exception e) {
-          promise.reject("error", "Unknown error code");
+    // the utterance of the text as it is spoken, rewritten by the normalizer if there is one
+    private Utterance createUtterance(String text, ReadableMap params, int priority, Promise completion, long acceptedAt) {
+        TextNormalizer.Result normalized = normalizer != null ? normalizer.normalize(text) : null;
+        Utterance utterance = new Utterance(nextUtteranceId(), normalized != null ? normalized.text : text,
+                params, priority, completion, acceptedAt);
+        utterance.normalization = normalized;
+        return utterance;
+    }
+
+    private String normalize(String text) {
+        return normalizer != null ? normalizer.normalize(text).text : text;
+    }
+
+    private boolean requestAudioFocus() {
+        if(!ducking) return true;
+        return audioFocus.acquire();
+    }
+
+    // keeps the audio focus while there is something left to speak, and the engine while it is used
+    private void releaseIfIdle(Utterance utterance) {
+        enginePool.touch(utterance.engine);
+        if(utterances.isEmpty()) {
+            audioFocus.releaseLater();
         }
     }
 
     @ReactMethod
-    public void setDucking(Boolean ducking, Promise promise) {
-        if(notReady(promise)) return;
-        this.ducking = ducking;
-        promise.resolve("success");
+    public void setDefaultLanguage(final String language, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                try {
+                  int result = defaultEngine.tts.setLanguage(LocaleCodes.toLocale(language));
+                  defaultEngine.language = language;
+                  // setting the language resets the voice
+                  defaultEngine.voice = null;
+                  // set on the instance already, unless it failed to and is left as it may be
+                  VoiceSettings applied = defaultEngine.applied;
+                  defaultEngine.applied = applied != null && result >= TextToSpeech.LANG_AVAILABLE ? applied.withLanguage(language) : null;
+                  resolvePromiseWithStatusCode(result, promise);
+                } catch (Exception e) {
+                  promise.reject("error", "Unknown error code");
+                }
+            }
+        });
     }
 
     @ReactMethod
-    public void setDefaultRate(Float rate, Boolean skipTransform, Promise promise) {
-        if(notReady(promise)) return;
+    public void setDucking(final boolean ducking, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+                TextToSpeechModule.this.ducking = ducking;
+                if(!ducking) {
+                    audioFocus.release();
+                }
+                promise.resolve("success");
+            }
+        });
+    }
 
-        if(skipTransform) {
-            int result = tts.setSpeechRate(rate);
-            resolvePromiseWithStatusCode(result, promise);
-        } else {
-            // normalize android rate
-            // rate value will be in the range 0.0 to 1.0
-            // let's convert it to the range of values Android platform expects,
-            // where 1.0 is no change of rate and 2.0 is the twice faster rate
-            float androidRate = rate.floatValue() < 0.5f ?
-                    rate.floatValue() * 2 : // linear fit {0, 0}, {0.25, 0.5}, {0.5, 1}
-                    rate.floatValue() * 4 - 1; // linear fit {{0.5, 1}, {0.75, 2}, {1, 3}}
-            int result = tts.setSpeechRate(androidRate);
-            resolvePromiseWithStatusCode(result, promise);
+    /**
+     * Sets for how long the audio focus is kept after the last utterance is finished,
+     * so that the other apps are not restored and ducked again between utterances.
+     */
+    @ReactMethod
+    public void setDuckingGracePeriod(final double gracePeriod, final Promise promise) {
+        if(gracePeriod < 0) {
+            promise.reject("invalid_request", "gracePeriod must not be negative");
+            return;
         }
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                audioFocus.setGracePeriod((long) gracePeriod);
+                promise.resolve("success");
+            }
+        });
     }
 
     @ReactMethod
-    public void setDefaultPitch(Float pitch, Promise promise) {
-        if(notReady(promise)) return;
-        int result = tts.setPitch(pitch);
-        resolvePromiseWithStatusCode(result, promise);
+    public void setDefaultRate(final double rate, final boolean skipTransform, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                // normalize android rate
+                float androidRate = skipTransform ? (float) rate : VoiceSettings.toAndroidRate((float) rate);
+                int result = defaultEngine.tts.setSpeechRate(androidRate);
+                defaultEngine.rate = androidRate;
+                VoiceSettings applied = defaultEngine.applied;
+                defaultEngine.applied = applied != null && result == TextToSpeech.SUCCESS ? applied.withRate(androidRate) : null;
+                resolvePromiseWithStatusCode(result, promise);
+            }
+        });
     }
 
     @ReactMethod
-    public void setDefaultVoice(String voiceId, Promise promise) {
-        if(notReady(promise)) return;
+    public void setDefaultPitch(final double pitch, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+                int result = defaultEngine.tts.setPitch((float) pitch);
+                defaultEngine.pitch = (float) pitch;
+                VoiceSettings applied = defaultEngine.applied;
+                defaultEngine.applied = applied != null && result == TextToSpeech.SUCCESS ? applied.withPitch((float) pitch) : null;
+                resolvePromiseWithStatusCode(result, promise);
+            }
+        });
+    }
 
-        if (Build.VERSION.SDK_INT >= 21) {
-            try {
-                for(Voice voice: tts.getVoices()) {
-                    if(voice.getName().equals(voiceId)) {
-                        int result = tts.setVoice(voice);
-                        resolvePromiseWithStatusCode(result, promise);
-                        return;
+    @ReactMethod
+    public void setDefaultVoice(final String voiceId, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                if (Build.VERSION.SDK_INT >= 21) {
+                    VoiceCatalog catalog = getVoiceCatalog(defaultEngine);
+                    Voice voice = catalog != null ? catalog.get(voiceId) : null;
+                    if(voice != null) {
+                        try {
+                            int result = defaultEngine.tts.setVoice(voice);
+                            defaultEngine.voice = voiceId;
+                            VoiceSettings applied = defaultEngine.applied;
+                            defaultEngine.applied = applied != null && result == TextToSpeech.SUCCESS ? applied.withVoice(voiceId) : null;
+                            resolvePromiseWithStatusCode(result, promise);
+                            return;
+                        } catch (Exception e) {
+                          // Purposefully ignore exceptions here due to some buggy TTS engines.
+                          // See http://stackoverflow.com/questions/26730082/illegalargumentexception-invalid-int-os-with-samsung-tts
+                        }
                     }
+                    promise.reject("not_found", "The selected voice was not found");
+                } else {
+                    promise.reject("not_available", "Android API 21 level or higher is required");
                 }
-            } catch (Exception e) {
-              // Purposefully ignore exceptions here due to some buggy TTS engines.
-              // See http://stackoverflow.com/questions/26730082/illegalargumentexception-invalid-int-os-with-samsung-tts
             }
-            promise.reject("not_found", "The selected voice was not found");
-        } else {
-            promise.reject("not_available", "Android API 21 level or higher is required");
-        }
+        });
     }
 
     @ReactMethod
     public void voices(Promise promise) {
-        if(notReady(promise)) return;
+        queryVoices(null, promise);
+    }
 
-        WritableArray voiceArray = Arguments.createArray();
+    /**
+     * Lists only the voices matching the filter. The filter may have a "language"
+     * (either "en" or "en-US"), "minQuality", "maxLatency", "offlineOnly" and "installedOnly".
+     */
+    @ReactMethod
+    public void queryVoices(final ReadableMap filter, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
 
-        if (Build.VERSION.SDK_INT >= 21) {
-            try {
-                for(Voice voice: tts.getVoices()) {
-                    WritableMap voiceMap = Arguments.createMap();
-                    voiceMap.putString("id", voice.getName());
-                    voiceMap.putString("name", voice.getName());
+                VoiceCatalog catalog = null;
+                if (Build.VERSION.SDK_INT >= 21) {
+                    catalog = getVoiceCatalog(defaultEngine);
+                }
+
+                if(catalog != null) {
+                    promise.resolve(catalog.toArray(filter != null ? VoiceCatalog.Query.fromMap(filter) : null));
+                } else {
+                    promise.resolve(Arguments.createArray());
+                }
+            }
+        });
+    }
 
-                    String language = iso3LanguageCodeToIso2LanguageCode(voice.getLocale().getISO3Language());
+    /**
+     * Returns the voices of the engine, listing them only on first use.
+     * Returns null if the engine failed to list its voices.
+     */
+    private VoiceCatalog getVoiceCatalog(EnginePool.Engine engine) {
+        if(engine.voiceCatalog == null) {
+            try {
+                VoiceCatalog catalog = new VoiceCatalog();
+                for(Voice voice: engine.tts.getVoices()) {
+                    String language = LocaleCodes.iso3LanguageToIso2(voice.getLocale().getISO3Language());
                     String country = voice.getLocale().getISO3Country();
-                    if(country != "") {
-                        language += "-" + iso3CountryCodeToIso2CountryCode(country);
+                    if(!country.isEmpty()) {
+                        language += "-" + LocaleCodes.iso3CountryToIso2(country);
                     }
-
-                    voiceMap.putString("language", language);
-                    voiceMap.putInt("quality", voice.getQuality());
-                    voiceMap.putInt("latency", voice.getLatency());
-                    voiceMap.putBoolean("networkConnectionRequired", voice.isNetworkConnectionRequired());
-                    voiceMap.putBoolean("notInstalled", voice.getFeatures().contains(TextToSpeech.Engine.KEY_FEATURE_NOT_INSTALLED));
-                    voiceArray.pushMap(voiceMap);
+                    catalog.add(voice, language);
                 }
+                engine.voiceCatalog = catalog;
             } catch (Exception e) {
               // Purposefully ignore exceptions here due to some buggy TTS engines.
               // See http://stackoverflow.com/questions/26730082/illegalargumentexception-invalid-int-os-with-samsung-tts
             }
         }
-
-        promise.resolve(voiceArray);
+        return engine.voiceCatalog;
     }
 
+    /**
+     * Switches to the engine, resolving with whether it initialized. The previous engine
+     * is kept initialized in the engine pool and finishes what is queued on it, switching
+     * back to it is immediate and keeps the settings it had.
+     */
     @ReactMethod
-    public void setDefaultEngine(String engineName, final Promise promise) {
-        if(notReady(promise)) return;
-
-        if(isPackageInstalled(engineName)) {
-            ready = null;
-            onCatalystInstanceDestroy();
-            tts = new TextToSpeech(getReactApplicationContext(), new TextToSpeech.OnInitListener() {
-                @Override
-                public void onInit(int status) {
-                    synchronized(initStatusPromises) {
-                        ready = (status == TextToSpeech.SUCCESS) ? Boolean.TRUE : Boolean.FALSE;
-                        for(Promise p: initStatusPromises) {
-                            resolveReadyPromise(p);
-                        }
-                        initStatusPromises.clear();
-                        promise.resolve(ready);
+    public void setDefaultEngine(final String engineName, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                if(isPackageInstalled(engineName)) {
+                    EnginePool.Engine previous = defaultEngine;
+                    defaultEngine = enginePool.get(engineName);
+                    if(previous != defaultEngine) {
+                        enginePool.touch(previous);
                     }
+                    if(defaultEngine.ready == null) {
+                        // calls made until the engine is initialized wait for it
+                        defaultEnginePromise = promise;
+                    } else {
+                        promise.resolve(defaultEngine.ready);
+                    }
+                } else {
+                    promise.reject("not_found", "The selected engine was not found");
                 }
-            }, engineName);
-
-            setUtteranceProgress();
-        } else {
-            promise.reject("not_found", "The selected engine was not found");
-        }
+            }
+        });
     }
 
+    /**
+     * Sets how many initialized engines are kept around when they are not in use,
+     * "maxSize", and for how long an unused engine is kept, "idleTimeout" in milliseconds.
+     */
     @ReactMethod
-    public void engines(Promise promise) {
-        if(notReady(promise)) return;
-
-        WritableArray engineArray = Arguments.createArray();
-
-        if (Build.VERSION.SDK_INT >= 14) {
-            try {
-                String defaultEngineName = tts.getDefaultEngine();
-                for(TextToSpeech.EngineInfo engine: tts.getEngines()) {
-                    WritableMap engineMap = Arguments.createMap();
-
-                    engineMap.putString("name", engine.name);
-                    engineMap.putString("label", engine.label);
-                    engineMap.putBoolean("default", engine.name.equals(defaultEngineName));
-                    engineMap.putInt("icon", engine.icon);
-
-                    engineArray.pushMap(engineMap);
-                }
-            } catch (Exception e) {
-                promise.reject("error", "Unknown error code");
-            }
+    public void setEngineOptions(final ReadableMap options, final Promise promise) {
+        final int maxSize = options.hasKey("maxSize") ? options.getInt("maxSize") : EnginePool.DEFAULT_MAX_SIZE;
+        final long idleTimeout = options.hasKey("idleTimeout") ? (long) options.getDouble("idleTimeout") : EnginePool.DEFAULT_IDLE_TIMEOUT;
+        if(maxSize <= 0 || idleTimeout < 0) {
+            promise.reject("invalid_request", "maxSize must be positive and idleTimeout must not be negative");
+            return;
         }
-
-        promise.resolve(engineArray);
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                enginePool.setOptions(maxSize, idleTimeout);
+                promise.resolve("success");
+            }
+        });
     }
 
+    /**
+     * Shuts the engines down once the app has been in the background for "backgroundTimeout"
+     * milliseconds without speaking, if "releaseInBackground" is set. They keep their settings
+     * and are started again with the next call that needs them.
+     */
+    @ReactMethod
+    public void setLifecycleOptions(final ReadableMap options, final Promise promise) {
+        final boolean enabled = options.hasKey("releaseInBackground") && options.getBoolean("releaseInBackground");
+        final long timeout = options.hasKey("backgroundTimeout") ? (long) options.getDouble("backgroundTimeout") : DEFAULT_BACKGROUND_TIMEOUT;
+        if(timeout < 0) {
+            promise.reject("invalid_request", "backgroundTimeout must not be negative");
+            return;
+        }
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                releaseInBackground = enabled;
+                backgroundTimeout = timeout;
+                engineHandler.removeCallbacks(releaseRunnable);
+                if(inBackground && releaseInBackground) {
+                    engineHandler.postDelayed(releaseRunnable, backgroundTimeout);
+                }
+                promise.resolve("success");
+            }
+        });
+    }
+
+    @Override
+    public void onHostResume() {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                // released engines are only started again when used
+                inBackground = false;
+                engineHandler.removeCallbacks(releaseRunnable);
+            }
+        });
+    }
+
+    @Override
+    public void onHostPause() {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                inBackground = true;
+                engineHandler.removeCallbacks(releaseRunnable);
+                if(releaseInBackground) {
+                    engineHandler.postDelayed(releaseRunnable, backgroundTimeout);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onHostDestroy() {
+    }
+
+    private void releaseEngines() {
+        if(!inBackground || !releaseInBackground) return;
+        if(!utterances.isEmpty() || defaultEngine.ready == null || isRecovering()) {
+            // still speaking or waiting for an engine, the app is idle a timeout after it is done
+            engineHandler.postDelayed(releaseRunnable, backgroundTimeout);
+            return;
+        }
+        final long pssBefore = Debug.getPss();
+        if(preRenderer != null) {
+            // creates its instance again when it next renders
+            preRenderer.shutdown();
+        }
+        if(enginePool.release() == 0) return;
+        engineHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                // of the app's process only, the engine service runs in a process of its own
+                metrics.recordRelease(Math.max(0, pssBefore - Debug.getPss()) * 1024);
+            }
+        }, RELEASE_MEMORY_DELAY);
+    }
+
+    private boolean isRecovering() {
+        for(EnginePool.Engine engine: enginePool.getEngines()) {
+            if(engine.failedAt != 0) return true;
+        }
+        return false;
+    }
+
+    @ReactMethod
+    public void engines(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                WritableArray engineArray = Arguments.createArray();
+
+                if (Build.VERSION.SDK_INT >= 14) {
+                    try {
+                        String defaultEngineName = defaultEngine.tts.getDefaultEngine();
+                        for(TextToSpeech.EngineInfo engine: defaultEngine.tts.getEngines()) {
+                            WritableMap engineMap = Arguments.createMap();
+
+                            engineMap.putString("name", engine.name);
+                            engineMap.putString("label", engine.label);
+                            engineMap.putBoolean("default", engine.name.equals(defaultEngineName));
+                            engineMap.putInt("icon", engine.icon);
+
+                            engineArray.pushMap(engineMap);
+                        }
+                    } catch (Exception e) {
+                        promise.reject("error", "Unknown error code");
+                    }
+                }
+
+                promise.resolve(engineArray);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void setCacheOptions(final ReadableMap options, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                boolean enabled = options.hasKey("enabled") && options.getBoolean("enabled");
+                long maxSize = options.hasKey("maxSize") ? (long) options.getDouble("maxSize") : DEFAULT_CACHE_SIZE;
+
+                if(enabled) {
+                    if(Build.VERSION.SDK_INT < 21) {
+                        promise.reject("not_available", "Android API 21 level or higher is required");
+                        return;
+                    }
+                    if(audioCache == null) {
+                        File directory = new File(getReactApplicationContext().getCacheDir(), CACHE_DIRECTORY);
+                        audioCache = new AudioCache(directory, maxSize);
+                    } else {
+                        audioCache.setMaxSize(maxSize);
+                    }
+                }
+                // when disabled the files are kept, they will be picked up again when the cache is re-enabled
+                cacheEnabled = enabled;
+                promise.resolve("success");
+            }
+        });
+    }
+
+    @ReactMethod
+    public void getCacheStats(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                WritableMap stats = Arguments.createMap();
+                AudioCache cache = audioCache;
+                stats.putBoolean("enabled", cacheEnabled);
+                stats.putDouble("hits", cache != null ? cache.getHits() : 0);
+                stats.putDouble("misses", cache != null ? cache.getMisses() : 0);
+                stats.putDouble("size", cache != null ? cache.getSize() : 0);
+                stats.putInt("count", cache != null ? cache.getCount() : 0);
+                promise.resolve(stats);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void clearCache(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(audioCache != null) {
+                    audioCache.clear();
+                }
+                promise.resolve("success");
+            }
+        });
+    }
+
+    /**
+     * Resolves with the word ranges of the text as it was spoken from the audio cache, with
+     * the time every word starts at in milliseconds from the start of the audio, or null if
+     * the text is not in the cache or the engine did not report its words when rendering it.
+     */
+    @ReactMethod
+    public void getWordTimings(final String text, final ReadableMap options, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                TextNormalizer.Result normalized = normalizer != null ? normalizer.normalize(text) : null;
+                String spoken = normalized != null ? normalized.text : text;
+                int[] bounds = cachedSegments(spoken, options);
+                TimingIndex[] indexes = readTimings(spoken, bounds, options);
+                if(indexes == null) {
+                    promise.resolve(null);
+                    return;
+                }
+                WritableArray ranges = Arguments.createArray();
+                double offset = 0;
+                for(int i = 0; i < indexes.length; i++) {
+                    TimingIndex index = indexes[i];
+                    for(int range = 0; range < index.size(); range++) {
+                        ranges.pushMap(wordRange(index, range, bounds[i], offset, normalized));
+                    }
+                    offset += index.duration();
+                }
+                WritableMap timings = Arguments.createMap();
+                timings.putDouble("duration", offset);
+                timings.putArray("ranges", ranges);
+                promise.resolve(timings);
+            }
+        });
+    }
+
+    /**
+     * Resolves with the word of the cached text that is being spoken at the playback position
+     * in milliseconds, or null if none is or the text has no word timings.
+     */
+    @ReactMethod
+    public void lookupWordRange(final String text, final double position, final ReadableMap options, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                TextNormalizer.Result normalized = normalizer != null ? normalizer.normalize(text) : null;
+                String spoken = normalized != null ? normalized.text : text;
+                int[] bounds = cachedSegments(spoken, options);
+                TimingIndex[] indexes = readTimings(spoken, bounds, options);
+                if(indexes == null) {
+                    promise.resolve(null);
+                    return;
+                }
+                WritableMap found = null;
+                double offset = 0;
+                for(int i = 0; i < indexes.length && position >= offset; i++) {
+                    TimingIndex index = indexes[i];
+                    int range = index.find(position - offset);
+                    // before the first word of a segment the last one of the previous is still spoken
+                    if(range != -1) {
+                        found = wordRange(index, range, bounds[i], offset, normalized);
+                    }
+                    offset += index.duration();
+                }
+                promise.resolve(found);
+            }
+        });
+    }
+
+    /**
+     * Reads the timing indexes of the cached segments of the text, or returns null if any
+     * of them is missing.
+     */
+    private TimingIndex[] readTimings(String text, int[] bounds, ReadableMap options) {
+        AudioCache cache = audioCache;
+        EnginePool.Engine engine = findEngine(options);
+        if(cache == null) return null;
+        VoiceSettings settings = VoiceSettings.of(engine, options);
+        TimingIndex[] indexes = new TimingIndex[bounds.length - 1];
+        for(int i = 0; i < indexes.length; i++) {
+            File file = cache.getTimings(audioKey(engine, settings, text.substring(bounds[i], bounds[i + 1])));
+            if(file == null) return null;
+            try {
+                indexes[i] = TimingIndex.read(file);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns the bounds of the segments the text was split into when it was spoken from the
+     * cache, which the segmentation options in effect now may not split it into.
+     */
+    private int[] cachedSegments(String text, ReadableMap options) {
+        AudioCache cache = audioCache;
+        EnginePool.Engine engine = findEngine(options);
+        int[] bounds = cache != null ? cache.getSegments(audioKey(engine, VoiceSettings.of(engine, options), text)) : null;
+        // spoken whole
+        return bounds != null ? bounds : new int[] { 0, text.length() };
+    }
+
+    // the range within the whole text, at the time within the audio of all of its segments
+    private static WritableMap wordRange(TimingIndex index, int range, int start, double offset, TextNormalizer.Result normalized) {
+        int rangeStart = start + index.start(range);
+        int rangeEnd = start + index.end(range);
+        if(normalized != null) {
+            rangeStart = normalized.originalStart(rangeStart);
+            rangeEnd = normalized.originalEnd(rangeEnd);
+        }
+        WritableMap map = Arguments.createMap();
+        map.putInt("start", rangeStart);
+        map.putInt("end", rangeEnd);
+        map.putDouble("time", offset + index.time(range));
+        return map;
+    }
+
+    /**
+     * Renders the next "count" utterances waiting for the engine to files while the engine
+     * speaks, so that they are played without a pause for synthesis. Rendered files take
+     * up to "maxSize" bytes and are deleted once played, or when speaking is stopped.
+     */
+    @ReactMethod
+    public void setPreRenderOptions(final ReadableMap options, final Promise promise) {
+        final boolean enabled = options.hasKey("enabled") && options.getBoolean("enabled");
+        final int count = options.hasKey("count") ? options.getInt("count") : DEFAULT_PRE_RENDER_COUNT;
+        final long maxSize = options.hasKey("maxSize") ? (long) options.getDouble("maxSize") : DEFAULT_PRE_RENDER_SIZE;
+        if(count <= 0 || maxSize <= 0) {
+            promise.reject("invalid_request", "count and maxSize must be positive");
+            return;
+        }
+        if(enabled && Build.VERSION.SDK_INT < 21) {
+            promise.reject("not_available", "Android API 21 level or higher is required");
+            return;
+        }
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                preRenderCount = count;
+                if(!enabled) {
+                    if(preRenderer != null) {
+                        preRenderer.shutdown();
+                        preRenderer = null;
+                    }
+                } else if(preRenderer == null) {
+                    File directory = new File(getReactApplicationContext().getCacheDir(), PRE_RENDER_DIRECTORY);
+                    preRenderer = new PreRenderer(getReactApplicationContext(), engineHandler, directory, maxSize, new Runnable() {
+                        @Override
+                        public void run() {
+                            preRender();
+                        }
+                    });
+                    preRender();
+                } else {
+                    preRenderer.setMaxSize(maxSize);
+                }
+                promise.resolve("success");
+            }
+        });
+    }
+
+    /**
+     * Exports the text to a WAV file, resolving with the export id right away. The text is
+     * split into segments that are rendered one after another by an engine instance with
+     * the settings of the engine it would be spoken with, and appended to the file in order.
+     * "parallelism" is accepted for compatibility and ignored, the engine service renders
+     * one segment at a time however many instances are bound to it. Progress is reported
+     * with "tts-export-progress" events, the export ends with a "tts-export-finish",
+     * "tts-export-error" or "tts-export-cancel" event.
+     */
+    @ReactMethod
+    public void exportToFile(final String text, final ReadableMap options, final Promise promise) {
+        final int segmentLength = options.hasKey("segmentLength") ? options.getInt("segmentLength") : DEFAULT_SEGMENT_LENGTH;
+        if(segmentLength <= 0) {
+            promise.reject("invalid_request", "segmentLength must be positive");
+            return;
+        }
+        if(Build.VERSION.SDK_INT < 21) {
+            promise.reject("not_available", "Android API 21 level or higher is required");
+            return;
+        }
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                EnginePool.Engine engine = getEngine(options);
+                if(engine == null) {
+                    promise.reject("not_found", "The selected engine was not found");
+                    return;
+                }
+
+                String exportId = nextUtteranceId();
+                File file = options.hasKey("path") && !options.isNull("path")
+                        ? new File(options.getString("path"))
+                        : new File(getReactApplicationContext().getCacheDir(), "tts-export-" + exportId + AudioCache.FILE_EXTENSION);
+                int maxLength = Math.min(TextToSpeech.getMaxSpeechInputLength(), segmentLength);
+                String spoken = normalize(text);
+                int[] bounds = TextSegmenter.split(spoken, maxLength, Locale.getDefault());
+                // the engine's settings as they are now, they may change while exporting
+                VoiceSettings settings = VoiceSettings.of(engine, options);
+                Exporter exporter = new Exporter(exportId, getReactApplicationContext(), file, spoken, bounds,
+                        engine.name, findVoice(engine, settings), settings.language, settings.rate, settings.pitch,
+                        exportListener, engineHandler);
+                exports.put(exportId, exporter);
+                exporter.start();
+                promise.resolve(exportId);
+            }
+        });
+    }
+
+    /** Stops the export and deletes its file, a "tts-export-cancel" event is sent once it is. */
+    @ReactMethod
+    public void cancelExport(final String exportId, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                Exporter exporter = exports.get(exportId);
+                if(exporter == null) {
+                    promise.resolve(false);
+                    return;
+                }
+                exporter.cancel();
+                promise.resolve(true);
+            }
+        });
+    }
+
+    /**
+     * Renders the text and streams its samples to JS, resolving with the buffer id right
+     * away. A "tts-buffer-start" event describes the sample format, the samples follow in
+     * "tts-buffer-data" events of about "chunkSize" bytes each, base64 encoded, and the
+     * stream ends with a "tts-buffer-finish", "tts-buffer-error" or "tts-buffer-cancel" event.
+     *
+     * The text is rendered to a file by an engine instance of its own, and read back in
+     * chunks through a memory mapping of it, so the audio is never held on the heap whole.
+     */
+    @ReactMethod
+    public void synthesizeToBuffer(final String text, final ReadableMap options, final Promise promise) {
+        final int chunkSize = options.hasKey("chunkSize") ? options.getInt("chunkSize") : DEFAULT_BUFFER_CHUNK_SIZE;
+        if(chunkSize <= 0) {
+            promise.reject("invalid_request", "chunkSize must be positive");
+            return;
+        }
+        if(Build.VERSION.SDK_INT < 21) {
+            promise.reject("not_available", "Android API 21 level or higher is required");
+            return;
+        }
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                EnginePool.Engine engine = getEngine(options);
+                if(engine == null) {
+                    promise.reject("not_found", "The selected engine was not found");
+                    return;
+                }
+
+                final String bufferId = nextUtteranceId();
+                File file = new File(getReactApplicationContext().getCacheDir(), "tts-buffer-" + bufferId + AudioCache.FILE_EXTENSION);
+                int maxLength = Math.min(TextToSpeech.getMaxSpeechInputLength(), DEFAULT_SEGMENT_LENGTH);
+                String spoken = normalize(text);
+                int[] bounds = TextSegmenter.split(spoken, maxLength, Locale.getDefault());
+                VoiceSettings settings = VoiceSettings.of(engine, options);
+                Exporter exporter = new Exporter(bufferId, getReactApplicationContext(), file, spoken, bounds,
+                        engine.name, findVoice(engine, settings), settings.language, settings.rate, settings.pitch, new Exporter.Listener() {
+                    @Override
+                    public void onProgress(Exporter exporter, int appended, int segments) {
+                    }
+
+                    @Override
+                    public void onFinish(final Exporter exporter) {
+                        // streamed on a thread of its own to keep the engine thread free for speech
+                        new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                streamBuffer(bufferId, exporter.file, chunkSize);
+                            }
+                        }, "TextToSpeechBuffer").start();
+                    }
+
+                    @Override
+                    public void onError(Exporter exporter, String message) {
+                        buffers.remove(bufferId);
+                        sendBufferError(bufferId, message);
+                    }
+
+                    @Override
+                    public void onCancel(Exporter exporter) {
+                        sendBufferEvent("tts-buffer-cancel", bufferId);
+                    }
+                }, engineHandler);
+                buffers.put(bufferId, exporter);
+                exporter.start();
+                promise.resolve(bufferId);
+            }
+        });
+    }
+
+    /** Stops rendering or streaming the buffer, a "tts-buffer-cancel" event is sent once it is. */
+    @ReactMethod
+    public void cancelBuffer(final String bufferId, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                Exporter exporter = buffers.remove(bufferId);
+                if(exporter == null) {
+                    promise.resolve(false);
+                    return;
+                }
+                exporter.cancel();
+                promise.resolve(true);
+            }
+        });
+    }
+
+    /**
+     * Streams the rendered file as events. It runs off the engine thread, which is safe as it
+     * only reads the file and the concurrent buffers map, and the emitter queues the events
+     * for the JS thread whichever thread they are sent from.
+     */
+    private void streamBuffer(String bufferId, File file, int chunkSize) {
+        PcmReader reader = null;
+        try {
+            reader = new PcmReader(file);
+            WritableMap params = Arguments.createMap();
+            params.putString("bufferId", bufferId);
+            params.putInt("sampleRate", reader.sampleRate);
+            params.putInt("channels", reader.channels);
+            params.putInt("bitsPerSample", reader.bitsPerSample);
+            params.putString("encoding", reader.encoding());
+            params.putDouble("size", reader.size());
+            sendEvent("tts-buffer-start", params);
+
+            // whole frames in every chunk
+            int length = Math.max(chunkSize - chunkSize % reader.blockAlign, reader.blockAlign);
+            byte[] chunk = new byte[length];
+            int offset = 0;
+            int read;
+            while((read = reader.read(chunk, length)) != -1) {
+                if(!buffers.containsKey(bufferId)) {
+                    sendBufferEvent("tts-buffer-cancel", bufferId);
+                    return;
+                }
+                WritableMap data = Arguments.createMap();
+                data.putString("bufferId", bufferId);
+                data.putDouble("offset", offset);
+                data.putString("data", Base64.encodeToString(chunk, 0, read, Base64.NO_WRAP));
+                sendEvent("tts-buffer-data", data);
+                offset += read;
+            }
+            buffers.remove(bufferId);
+            sendBufferEvent("tts-buffer-finish", bufferId);
+        } catch (IOException e) {
+            buffers.remove(bufferId);
+            sendBufferError(bufferId, "Could not read " + file + ": " + e.getMessage());
+        } finally {
+            if(reader != null) {
+                reader.close();
+            }
+            file.delete();
+        }
+    }
+
+    private void sendBufferEvent(String eventName, String bufferId) {
+        WritableMap params = Arguments.createMap();
+        params.putString("bufferId", bufferId);
+        sendEvent(eventName, params);
+    }
+
+    private void sendBufferError(String bufferId, String message) {
+        WritableMap params = Arguments.createMap();
+        params.putString("bufferId", bufferId);
+        params.putString("message", message);
+        sendEvent("tts-buffer-error", params);
+    }
+
+    // called on the engine thread, the exporters are created with its handler
+    private final Exporter.Listener exportListener = new Exporter.Listener() {
+        @Override
+        public void onProgress(Exporter exporter, int appended, int segments) {
+            WritableMap params = Arguments.createMap();
+            params.putString("exportId", exporter.id);
+            params.putInt("segment", appended);
+            params.putInt("segments", segments);
+            sendEvent("tts-export-progress", params);
+        }
+
+        @Override
+        public void onFinish(Exporter exporter) {
+            exports.remove(exporter.id);
+            WritableMap params = Arguments.createMap();
+            params.putString("exportId", exporter.id);
+            params.putString("path", exporter.file.getAbsolutePath());
+            sendEvent("tts-export-finish", params);
+        }
+
+        @Override
+        public void onError(Exporter exporter, String message) {
+            exports.remove(exporter.id);
+            WritableMap params = Arguments.createMap();
+            params.putString("exportId", exporter.id);
+            params.putString("message", message);
+            sendEvent("tts-export-error", params);
+        }
+
+        @Override
+        public void onCancel(Exporter exporter) {
+            exports.remove(exporter.id);
+            WritableMap params = Arguments.createMap();
+            params.putString("exportId", exporter.id);
+            sendEvent("tts-export-cancel", params);
+        }
+    };
+
+    /**
+     * Configures the admission filter that speak() runs utterances through. With "dedupe"
+     * an utterance with the same text, engine and priority as one that is waiting is merged
+     * into it. With a "rate" of utterances per second, at most "burst" utterances are added
+     * to the queue at once and the rest are dropped until the rate allows for more.
+     * Utterances with the "coalesceKey" param of a waiting one always replace it.
+     */
+    @ReactMethod
+    public void setAdmissionOptions(final ReadableMap options, final Promise promise) {
+        final boolean dedupe = options.hasKey("dedupe") && options.getBoolean("dedupe");
+        final double rate = options.hasKey("rate") ? options.getDouble("rate") : 0;
+        final double burst = options.hasKey("burst") ? options.getDouble("burst") : Math.max(rate, 1);
+        if(rate < 0 || burst < 1) {
+            promise.reject("invalid_request", "rate must not be negative and burst must be at least 1");
+            return;
+        }
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                admission.setOptions(dedupe, rate, burst, SystemClock.elapsedRealtime());
+                promise.resolve("success");
+            }
+        });
+    }
+
+    /**
+     * Chooses how utterance events are delivered. In the "batch" and "latest" modes events
+     * are buffered and sent as a single "tts-batch" event every interval milliseconds, or
+     * as soon as maxBatchSize events are buffered. The "latest" mode only keeps the most
+     * recent progress event of every utterance.
+     */
     @ReactMethod
-    public void stop(Promise promise) {
-        if(notReady(promise)) return;
+    public void setEventOptions(ReadableMap options, final Promise promise) {
+        String modeName = options.hasKey("mode") ? options.getString("mode") : "immediate";
+        final long interval = options.hasKey("interval") ? (long) options.getDouble("interval") : 100;
+        final int maxBatchSize = options.hasKey("maxBatchSize") ? options.getInt("maxBatchSize") : 100;
+
+        final int mode;
+        switch(modeName) {
+            case "immediate":
+                mode = EventDispatcher.MODE_IMMEDIATE;
+                break;
+            case "batch":
+                mode = EventDispatcher.MODE_BATCH;
+                break;
+            case "latest":
+                mode = EventDispatcher.MODE_LATEST;
+                break;
+            default:
+                promise.reject("invalid_request", "Unknown event mode: " + modeName);
+                return;
+        }
+        if(interval <= 0 || maxBatchSize <= 0) {
+            promise.reject("invalid_request", "interval and maxBatchSize must be positive");
+            return;
+        }
+
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                eventDispatcher.setOptions(mode, interval, maxBatchSize);
+                promise.resolve("success");
+            }
+        });
+    }
 
-        int result = tts.stop();
-        boolean resultValue = (result == TextToSpeech.SUCCESS) ? Boolean.TRUE : Boolean.FALSE;
-        promise.resolve(resultValue);
+    /**
+     * Controls splitting of utterances into sentences, which are queued on the engine
+     * "lookAhead" at a time. When enabled, every utterance is split into segments of at
+     * most "segmentLength" characters, so that speaking starts as soon as the first one
+     * is synthesized. Utterances longer than the engine input limit are always split.
+     */
+    @ReactMethod
+    public void setSegmentationOptions(final ReadableMap options, final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                int segmentLength = options.hasKey("segmentLength") ? options.getInt("segmentLength") : DEFAULT_SEGMENT_LENGTH;
+                int lookAhead = options.hasKey("lookAhead") ? options.getInt("lookAhead") : DEFAULT_LOOK_AHEAD;
+                if(segmentLength <= 0 || lookAhead <= 0) {
+                    promise.reject("invalid_request", "segmentLength and lookAhead must be positive");
+                    return;
+                }
+                segmentationEnabled = options.hasKey("enabled") && options.getBoolean("enabled");
+                TextToSpeechModule.this.segmentLength = segmentLength;
+                TextToSpeechModule.this.lookAhead = lookAhead;
+                promise.resolve("success");
+            }
+        });
     }
 
+    /**
+     * Sets the lexicon and rules texts are rewritten with before they are spoken, replacing
+     * the ones set before. "lexicon" maps phrases to how they are spoken, "rules" is a list
+     * of "pattern" and "replacement" pairs of regular expressions. Both are compiled once
+     * here, and the results of the last "memoSize" texts are kept. Without any phrase or
+     * rule texts are spoken as they are.
+     */
     @ReactMethod
-    private void requestInstallEngine(Promise promise) {
+    public void setNormalization(ReadableMap options, final Promise promise) {
+        HashMap<String, String> lexicon = new HashMap<String, String>();
+        ArrayList<String[]> rules = new ArrayList<String[]>();
+        if(options.hasKey("lexicon") && !options.isNull("lexicon")) {
+            ReadableMap entries = options.getMap("lexicon");
+            ReadableMapKeySetIterator iterator = entries.keySetIterator();
+            while(iterator.hasNextKey()) {
+                String phrase = iterator.nextKey();
+                lexicon.put(phrase, entries.getString(phrase));
+            }
+        }
+        if(options.hasKey("rules") && !options.isNull("rules")) {
+            ReadableArray items = options.getArray("rules");
+            for(int i = 0; i < items.size(); i++) {
+                ReadableMap rule = items.getMap(i);
+                rules.add(new String[] { rule.getString("pattern"), rule.getString("replacement") });
+            }
+        }
+        boolean ignoreCase = options.hasKey("ignoreCase") && options.getBoolean("ignoreCase");
+        int memoSize = options.hasKey("memoSize") ? options.getInt("memoSize") : TextNormalizer.DEFAULT_MEMO_SIZE;
+        if(memoSize < 0) {
+            promise.reject("invalid_request", "memoSize must not be negative");
+            return;
+        }
+
+        final TextNormalizer compiled;
+        try {
+            // compiled here rather than on the engine thread, so that speaking goes on meanwhile
+            compiled = new TextNormalizer(lexicon, rules, ignoreCase, memoSize);
+        } catch (IllegalArgumentException e) {
+            promise.reject("invalid_request", e.getMessage());
+            return;
+        }
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                normalizer = compiled.isEmpty() ? null : compiled;
+                promise.resolve("success");
+            }
+        });
+    }
+
+    /** Resolves with the compile time, memo hits and misses and normalization times, or null without a normalizer. */
+    @ReactMethod
+    public void getNormalizationStats(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                promise.resolve(normalizer != null ? normalizer.getStats() : null);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void getSchedulerStats(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                WritableMap stats = waiting.getStats();
+                stats.putMap("admission", admission.getStats());
+                promise.resolve(stats);
+            }
+        });
+    }
+
+    /**
+     * Stops speaking at the last word the engine reported and keeps everything queued.
+     * Resolves with false if there was nothing to pause.
+     */
+    @ReactMethod
+    public void pause(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                pausedByFocusLoss = false;
+                promise.resolve(pauseSpeaking());
+            }
+        });
+    }
+
+    /**
+     * Continues speaking from the word where pause() stopped, with the same utterance ids.
+     * Resolves with false if speaking was not paused.
+     */
+    @ReactMethod
+    public void resume(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(notReady(this, promise)) return;
+
+                pausedByFocusLoss = false;
+                promise.resolve(resumeSpeaking());
+            }
+        });
+    }
+
+    private int stopSpeaking() {
+        EnginePool.Engine engine = queuedEngine;
+        cancelAll();
+        if(engine != null && engine != defaultEngine) {
+            engine.tts.stop();
+        }
+        int result = defaultEngine.tts.stop();
+        if(preRenderer != null) {
+            preRenderer.cancel();
+        }
+        return result;
+    }
+
+    private boolean pauseSpeaking() {
+        if(paused || queued.isEmpty()) return false;
+
+        Utterance utterance = queued.get(0);
+        paused = true;
+        pausedUtterance = utterance.started ? utterance : null;
+        takeBack();
+        if(utterance.started) {
+            eventDispatcher.sendEvent("tts-pause", utterance.id);
+        }
+        return true;
+    }
+
+    private boolean resumeSpeaking() {
+        if(!paused) return false;
+
+        paused = false;
+        Utterance utterance = pausedUtterance;
+        pausedUtterance = null;
+        fill();
+        if(utterance != null && utterances.containsKey(utterance.id)) {
+            eventDispatcher.sendEvent("tts-resume", utterance.id);
+        }
+        return true;
+    }
+
+    /**
+     * Resolves with latency histograms of engine initialization, by engine, and of the
+     * utterances spoken, by engine and voice. All times are in milliseconds.
+     */
+    @ReactMethod
+    public void getMetrics(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                promise.resolve(metrics.toMap());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void resetMetrics(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                metrics.clear();
+                promise.resolve("success");
+            }
+        });
+    }
+
+    /**
+     * Sends the metrics as a "tts-metrics" event every interval milliseconds,
+     * an interval of 0 turns the event off.
+     */
+    @ReactMethod
+    public void setMetricsInterval(final double interval, final Promise promise) {
+        if(interval < 0) {
+            promise.reject("invalid_request", "interval must not be negative");
+            return;
+        }
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                engineHandler.removeCallbacks(metricsRunnable);
+                metricsInterval = (long) interval;
+                if(metricsInterval > 0) {
+                    engineHandler.postDelayed(metricsRunnable, metricsInterval);
+                }
+                promise.resolve("success");
+            }
+        });
+    }
+
+    @ReactMethod
+    public void stop(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                if(defaultEngine.released) {
+                    // nothing is speaking, no need to start the engine for it
+                    promise.resolve(true);
+                    return;
+                }
+                if(notReady(this, promise)) return;
+
+                int result = stopSpeaking();
+                boolean resultValue = (result == TextToSpeech.SUCCESS) ? Boolean.TRUE : Boolean.FALSE;
+                promise.resolve(resultValue);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void requestInstallEngine(Promise promise) {
         Intent intent = new Intent(Intent.ACTION_VIEW);
         intent.setData(Uri.parse("market://details?id=com.google.android.tts"));
         try {
@@ -422,15 +1966,24 @@ public class TextToSpeechModule extends ReactContextBaseJavaModule {
     }
 
     @ReactMethod
-    private void requestInstallData(Promise promise) {
-        Intent intent = new Intent();
-        intent.setAction(TextToSpeech.Engine.ACTION_INSTALL_TTS_DATA);
-        try {
-            getCurrentActivity().startActivity(intent);
-            promise.resolve("success");
-        } catch (ActivityNotFoundException e) {
-            promise.reject("no_engine", "No TTS engine installed");
-        }
+    public void requestInstallData(final Promise promise) {
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                Intent intent = new Intent();
+                intent.setAction(TextToSpeech.Engine.ACTION_INSTALL_TTS_DATA);
+                // the installed data may come with new voices
+                for(EnginePool.Engine engine: enginePool.getEngines()) {
+                    engine.voiceCatalog = null;
+                }
+                try {
+                    getCurrentActivity().startActivity(intent);
+                    promise.resolve("success");
+                } catch (ActivityNotFoundException e) {
+                    promise.reject("no_engine", "No TTS engine installed");
+                }
+            }
+        });
     }
 
     /**
@@ -440,26 +1993,446 @@ public class TextToSpeechModule extends ReactContextBaseJavaModule {
     @Override
     public void onCatalystInstanceDestroy() {
         super.onCatalystInstanceDestroy();
-        if(tts != null) {
-            tts.stop();
-            tts.shutdown();
+        getReactApplicationContext().removeLifecycleEventListener(this);
+        eventDispatcher.flush();
+        engineHandler.removeCallbacks(metricsRunnable);
+        for(Exporter exporter: exports.values()) {
+            exporter.cancel();
+        }
+        for(Exporter exporter: buffers.values()) {
+            exporter.cancel();
         }
+        // stops the buffers being streamed
+        buffers.clear();
+        runOnEngineThread(new Runnable() {
+            @Override
+            public void run() {
+                shutdownEngine();
+                rejectPendingOperations();
+                // whatever was submitted after this has nobody to answer to
+                engineThread.quit();
+            }
+        });
     }
 
-    private boolean notReady(Promise promise) {
-        if(ready == null) {
-            promise.reject("not_ready", "TTS is not ready");
+    private void shutdownEngine() {
+        engineHandler.removeCallbacks(releaseRunnable);
+        enginePool.shutdownAll();
+        if(preRenderer != null) {
+            preRenderer.shutdown();
+        }
+        // the engines do not report back on utterances that were queued when it was shut down
+        discardCacheRenders();
+        cancelAll();
+        audioFocus.release();
+    }
+
+    /**
+     * Returns true if the operation can not run yet, in which case the promise has been
+     * settled or the operation has been put aside to run once the engine is initialized.
+     */
+    private boolean notReady(Runnable operation, Promise promise) {
+        // an engine released in the background is started again by the first call that needs it
+        enginePool.restore(defaultEngine);
+        if(defaultEngine.ready == null) {
+            if(pendingOperations.size() >= MAX_PENDING_OPERATIONS) {
+                promise.reject("not_ready", "TTS is not ready and too many calls are waiting for it");
+            } else {
+                pendingOperations.add(new PendingOperation(operation, promise));
+            }
             return true;
         }
-        else if(ready != Boolean.TRUE) {
+        else if(defaultEngine.ready != Boolean.TRUE) {
             resolveReadyPromise(promise);
             return true;
         }
         return false;
     }
 
+    /**
+     * Runs the operations put aside during initialization in the order they were called.
+     * If the engine failed to initialize they reject their promises, if one of them
+     * switches the engine the ones after it are put aside again.
+     */
+    private void runPendingOperations() {
+        ArrayList<PendingOperation> operations = new ArrayList<PendingOperation>(pendingOperations);
+        pendingOperations.clear();
+        for(PendingOperation pending: operations) {
+            pending.operation.run();
+        }
+    }
+
+    private void rejectPendingOperations() {
+        for(PendingOperation pending: pendingOperations) {
+            pending.promise.reject("not_ready", "TTS is not ready");
+        }
+        pendingOperations.clear();
+        if(defaultEnginePromise != null) {
+            defaultEnginePromise.reject("not_ready", "TTS is not ready");
+            defaultEnginePromise = null;
+        }
+    }
+
+    // returns the priority level of the utterance, or -1 if the params name an unknown one
+    private static int getPriority(ReadableMap params) {
+        if(!params.hasKey("priority") || params.isNull("priority")) {
+            return UtteranceQueue.PRIORITY_NORMAL;
+        }
+        return UtteranceQueue.parsePriority(params.getString("priority"));
+    }
+
+    /**
+     * Returns the engine named by the params, the default one if they do not name any,
+     * or null if the named engine is not installed.
+     */
+    private EnginePool.Engine getEngine(ReadableMap params) {
+        if(!params.hasKey("engine") || params.isNull("engine")) {
+            return defaultEngine;
+        }
+        String name = params.getString("engine");
+        if(name.equals(defaultEngine.name)) {
+            return defaultEngine;
+        }
+        return isPackageInstalled(name) ? enginePool.get(name) : null;
+    }
+
+    /**
+     * Returns the engine the params select without starting it: the one in the pool, or one
+     * with the engine's default settings if it is not in it.
+     */
+    private EnginePool.Engine findEngine(ReadableMap params) {
+        if(!params.hasKey("engine") || params.isNull("engine")) {
+            return defaultEngine;
+        }
+        String name = params.getString("engine");
+        if(name.equals(defaultEngine.name)) {
+            return defaultEngine;
+        }
+        EnginePool.Engine engine = enginePool.peek(name);
+        return engine != null ? engine : new EnginePool.Engine(name);
+    }
+
+    private String nextUtteranceId() {
+        return Long.toString(lastUtteranceId.incrementAndGet());
+    }
+
+    /**
+     * Accepts the utterance for speaking and keeps track of it until the engine reports
+     * that it is done with it.
+     *
+     * The module holds its own queue of utterances ordered by priority, and only queues
+     * a few segments on the engine at a time. An utterance of high priority takes lower
+     * priority ones off the engine, they are queued again after it, starting with the
+     * word that was interrupted.
+     */
+    private int speak(Utterance utterance, EnginePool.Engine engine) {
+        utterance.engine = engine;
+        if(!admit(utterance)) {
+            releaseIfIdle(utterance);
+            return ERROR_DROPPED;
+        }
+        if(utterance.mergedInto != null) {
+            return TextToSpeech.SUCCESS;
+        }
+        utterance.bounds = segment(utterance.text);
+        utterance.voice = VoiceSettings.of(engine, utterance.params).voice;
+        if(cacheEnabled) {
+            // copied as a rewind shortens the segment that was interrupted
+            utterance.boundsToCache = utterance.bounds.clone();
+        }
+        utterances.put(utterance.id, utterance);
+        utterance.accepting = true;
+        if(utterance.priority == UtteranceQueue.PRIORITY_HIGH && isQueuedBelow(utterance.priority)) {
+            preempt();
+        }
+        waiting.add(utterance);
+        fill();
+        utterance.accepting = false;
+        return utterance.errorCode;
+    }
+
+    /**
+     * Runs the utterance through the admission filter. Returns false if it is dropped.
+     * A waiting utterance it replaces is reported as cancelled, its completion is settled
+     * along with the utterance instead. If it is merged into a waiting utterance, its
+     * mergedInto is set and it is not to be queued.
+     */
+    private boolean admit(Utterance utterance) {
+        List<Utterance> pending = waiting.peek(waiting.size());
+        Utterance replaced = admission.findCoalesced(utterance, pending);
+        if(replaced != null) {
+            waiting.remove(replaced);
+            utterances.remove(replaced.id);
+            if(replaced.completion != null) {
+                utterance.mergedCompletions.add(replaced.completion);
+            }
+            utterance.mergedCompletions.addAll(replaced.mergedCompletions);
+            metrics.recordCancellation(replaced);
+            eventDispatcher.sendEvent("tts-cancel", replaced.id);
+            sendAdmissionEvent(EventDispatcher.MERGE_EVENT, replaced.id, utterance.id, "coalesced");
+            return true;
+        }
+        Utterance duplicate = admission.findDuplicate(utterance, pending);
+        if(duplicate != null) {
+            utterance.mergedInto = duplicate;
+            if(utterance.completion != null) {
+                duplicate.mergedCompletions.add(utterance.completion);
+            }
+            sendAdmissionEvent(EventDispatcher.MERGE_EVENT, utterance.id, duplicate.id, "duplicate");
+            return true;
+        }
+        if(!admission.tryAcquire(SystemClock.elapsedRealtime())) {
+            sendAdmissionEvent(EventDispatcher.DROP_EVENT, utterance.id, null, "rate_limited");
+            return false;
+        }
+        return true;
+    }
+
+    // reports what the admission filter did with the utterance, along with the running totals
+    private void sendAdmissionEvent(String eventName, String utteranceId, String into, String reason) {
+        eventDispatcher.sendAdmission(eventName, utteranceId, into, reason,
+                admission.getDropped(), admission.getMerged() + admission.getCoalesced());
+    }
+
+    // the id speak() resolves with, that of the utterance it was merged into if it was
+    private static String idOf(Utterance utterance) {
+        return utterance.mergedInto != null ? utterance.mergedInto.id : utterance.id;
+    }
+
+    private int[] segment(String text) {
+        int maxLength = Build.VERSION.SDK_INT >= 18 ? TextToSpeech.getMaxSpeechInputLength() : LEGACY_MAX_SPEECH_INPUT_LENGTH;
+        if(segmentationEnabled) {
+            maxLength = Math.min(maxLength, segmentLength);
+        } else if(text.length() <= maxLength) {
+            return new int[] { 0, text.length() };
+        }
+        return TextSegmenter.split(text, maxLength, Locale.getDefault());
+    }
+
+    private Utterance getUtterance(String requestId) {
+        Utterance utterance = utterances.get(Utterance.idOf(requestId));
+        return utterance != null && utterance.isCurrent(requestId) ? utterance : null;
+    }
+
+    private void fill() {
+        queueSegments();
+        preRender();
+    }
+
+    // queues segments on the engine until there are lookAhead of them
+    private void queueSegments() {
+        while(!paused && queuedSegments < lookAhead) {
+            if(feeding == null) {
+                feeding = waiting.poll();
+                if(feeding == null) return;
+            }
+            Utterance utterance = feeding;
+            EnginePool.Engine engine = utterance.engine;
+            // onEngineInit() fills again once the engine is initialized
+            if(engine.ready == null) return;
+            if(engine.ready != Boolean.TRUE) {
+                feeding = null;
+                failUtterance(utterance, TextToSpeech.ERROR_SERVICE);
+                continue;
+            }
+            // wait for the other engine to finish, onSegmentDone() fills again
+            if(queuedSegments > 0 && engine != queuedEngine) return;
+            queuedEngine = engine;
+            int segment = utterance.nextSegment;
+            int result = speak(engine, utterance.segmentText(segment), utterance.requestId(segment), utterance.params);
+            // the engine returns a plain error when its service died
+            if((result == TextToSpeech.ERROR || result == TextToSpeech.ERROR_SERVICE) && recover(engine)) {
+                continue;
+            }
+            if(result != TextToSpeech.SUCCESS) {
+                feeding = null;
+                failUtterance(utterance, result);
+                continue;
+            }
+            if(segment == 0 && utterance.epoch == 0) {
+                utterance.enqueuedAt = SystemClock.elapsedRealtime();
+                waiting.recordWait(utterance.priority, utterance.enqueuedAt - utterance.acceptedAt);
+            }
+            // the utterance is still listed while its previous segment finishes, as with a lookAhead of 1
+            if(!queued.contains(utterance)) {
+                queued.add(utterance);
+            }
+            utterance.nextSegment++;
+            utterance.queuedSegments++;
+            queuedSegments++;
+            if(utterance.isFullyQueued()) {
+                feeding = null;
+            }
+        }
+    }
+
+    /**
+     * Renders the segments that are going to be queued on the engine next, the rest of
+     * the utterance being fed and then the next preRenderCount waiting utterances, as far
+     * as the size budget allows. Renders that are no longer needed are deleted.
+     */
+    private void preRender() {
+        if(preRenderer == null) return;
+
+        ArrayList<Utterance> next = new ArrayList<Utterance>();
+        if(feeding != null) {
+            next.add(feeding);
+        }
+        next.addAll(waiting.peek(preRenderCount));
+        ArrayList<String> keys = new ArrayList<String>();
+        ArrayList<String> texts = new ArrayList<String>();
+        ArrayList<EnginePool.Engine> engines = new ArrayList<EnginePool.Engine>();
+        ArrayList<VoiceSettings> settings = new ArrayList<VoiceSettings>();
+        for(Utterance utterance: next) {
+            VoiceSettings utteranceSettings = VoiceSettings.of(utterance.engine, utterance.params);
+            for(int segment = utterance.nextSegment; segment < utterance.segmentCount(); segment++) {
+                String text = utterance.segmentText(segment);
+                keys.add(audioKey(utterance.engine, utteranceSettings, text));
+                texts.add(text);
+                engines.add(utterance.engine);
+                settings.add(utteranceSettings);
+            }
+        }
+        preRenderer.retain(keys);
+        for(int i = 0; i < keys.size(); i++) {
+            VoiceSettings renderSettings = settings.get(i);
+            Voice voice = findVoice(engines.get(i), renderSettings);
+            if(!preRenderer.render(engines.get(i).name, renderSettings, voice, keys.get(i), texts.get(i))) return;
+        }
+    }
+
+    private boolean isQueuedBelow(int priority) {
+        for(Utterance utterance: queued) {
+            if(utterance.priority < priority) return true;
+        }
+        return false;
+    }
+
+    private void preempt() {
+        takeBack();
+        waiting.recordPreemption();
+    }
+
+    /**
+     * Stops the engine and puts everything that was queued on it back to the waiting
+     * queue, in front of the utterances of the same priority.
+     */
+    private void takeBack() {
+        if(queuedEngine != null) {
+            queuedEngine.tts.stop();
+        }
+        for(int i = queued.size() - 1; i >= 0; i--) {
+            Utterance utterance = queued.get(i);
+            utterance.rewind();
+            waiting.addFirst(utterance);
+        }
+        queued.clear();
+        queuedSegments = 0;
+        feeding = null;
+    }
+
+    // takes the utterance off the engine bookkeeping
+    private void release(Utterance utterance) {
+        if(queued.remove(utterance)) {
+            queuedSegments -= utterance.queuedSegments;
+            utterance.queuedSegments = 0;
+        }
+        if(feeding == utterance) {
+            feeding = null;
+        }
+    }
+
+    private void onSegmentDone(String requestId) {
+        Utterance utterance = getUtterance(requestId);
+        if(utterance == null) return;
+
+        utterance.queuedSegments--;
+        queuedSegments--;
+        utterance.engine.restarts = 0;
+        boolean done = utterance.isDone();
+        if(done) {
+            queued.remove(utterance);
+        }
+        fill();
+        if(!done) return;
+
+        if(utterances.remove(utterance.id) == null) return;
+        releaseIfIdle(utterance);
+        metrics.recordDone(utterance, SystemClock.elapsedRealtime());
+        if(utterance.completion != null) {
+            utterance.completion.resolve(utterance.id);
+        }
+        for(Promise merged: utterance.mergedCompletions) {
+            merged.resolve(utterance.id);
+        }
+        eventDispatcher.sendEvent("tts-finish", utterance.id);
+    }
+
+    private void failUtterance(Utterance utterance, int errorCode) {
+        if(utterances.remove(utterance.id) == null) return;
+        boolean segmentsQueued = utterance.queuedSegments > 0;
+        release(utterance);
+        if(segmentsQueued) {
+            // the engine cannot drop the segments of one utterance, it is stopped and the others are queued again
+            if(feeding != null && !queued.contains(feeding)) {
+                waiting.addFirst(feeding);
+                feeding = null;
+            }
+            takeBack();
+            discardCacheRenders();
+        }
+        if(utterance.accepting) {
+            // speak() returns the error to the caller
+            utterance.errorCode = errorCode;
+            return;
+        }
+        fill();
+        releaseIfIdle(utterance);
+        metrics.recordError(utterance);
+        if(utterance.completion != null) {
+            resolvePromiseWithStatusCode(errorCode, utterance.completion);
+        }
+        for(Promise merged: utterance.mergedCompletions) {
+            resolvePromiseWithStatusCode(errorCode, merged);
+        }
+        eventDispatcher.sendEvent("tts-error", utterance.id);
+    }
+
+    private void cancelUtterance(Utterance utterance) {
+        if(utterances.remove(utterance.id) == null) return;
+        release(utterance);
+        releaseIfIdle(utterance);
+        metrics.recordCancellation(utterance);
+        if(utterance.completion != null) {
+            rejectCancelled(utterance.completion);
+        }
+        for(Promise merged: utterance.mergedCompletions) {
+            rejectCancelled(merged);
+        }
+        eventDispatcher.sendEvent("tts-cancel", utterance.id);
+    }
+
+    /**
+     * Drops everything queued on the engine and waiting for it, and reports the
+     * utterances as cancelled. The engine itself has to be stopped by the caller.
+     */
+    private void cancelAll() {
+        List<Utterance> cancelled;
+        cancelled = new ArrayList<Utterance>(queued);
+        cancelled.addAll(waiting.clear());
+        queued.clear();
+        queuedSegments = 0;
+        feeding = null;
+        paused = false;
+        pausedUtterance = null;
+        pausedByFocusLoss = false;
+        for(Utterance utterance: cancelled) {
+            cancelUtterance(utterance);
+        }
+    }
+
     @SuppressWarnings("deprecation")
-    private int speak(String utterance, String utteranceId, ReadableMap inputParams) {
+    private int speak(EnginePool.Engine engine, String utterance, String utteranceId, ReadableMap inputParams) {
         String audioStreamTypeString = inputParams.hasKey("KEY_PARAM_STREAM") ? inputParams.getString("KEY_PARAM_STREAM") : "";
         float volume = inputParams.hasKey("KEY_PARAM_VOLUME") ? (float) inputParams.getDouble("KEY_PARAM_VOLUME") : 1.0f;
         float pan = inputParams.hasKey("KEY_PARAM_PAN") ? (float) inputParams.getDouble("KEY_PARAM_PAN") : 0.0f;
@@ -498,36 +2471,93 @@ public class TextToSpeechModule extends ReactContextBaseJavaModule {
                 audioStreamType = AudioManager.USE_DEFAULT_STREAM_TYPE;
         }
 
+        VoiceSettings settings = VoiceSettings.of(engine, inputParams);
+        applySettings(engine, settings);
+
         if (Build.VERSION.SDK_INT >= 21) {
             Bundle params = new Bundle();
             params.putInt(TextToSpeech.Engine.KEY_PARAM_STREAM, audioStreamType);
             params.putFloat(TextToSpeech.Engine.KEY_PARAM_VOLUME, volume);
             params.putFloat(TextToSpeech.Engine.KEY_PARAM_PAN, pan);
-            return tts.speak(utterance, TextToSpeech.QUEUE_ADD, params, utteranceId);
+            if(preRenderer != null) {
+                File file = preRenderer.take(audioKey(engine, settings, utterance), utteranceId);
+                if(file != null) {
+                    String earcon = PRE_RENDER_EARCON_PREFIX + file.getName();
+                    engine.tts.addEarcon(earcon, file);
+                    return engine.tts.playEarcon(earcon, TextToSpeech.QUEUE_ADD, params, utteranceId);
+                }
+            }
+            if(cacheEnabled) {
+                return speakCached(engine, settings, utterance, utteranceId, params);
+            }
+            return engine.tts.speak(utterance, TextToSpeech.QUEUE_ADD, params, utteranceId);
         } else {
             HashMap<String, String> params = new HashMap();
             params.put(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
             params.put(TextToSpeech.Engine.KEY_PARAM_STREAM, String.valueOf(audioStreamType));
             params.put(TextToSpeech.Engine.KEY_PARAM_VOLUME, String.valueOf(volume));
             params.put(TextToSpeech.Engine.KEY_PARAM_PAN, String.valueOf(pan));
-            return tts.speak(utterance, TextToSpeech.QUEUE_ADD, params);
+            return engine.tts.speak(utterance, TextToSpeech.QUEUE_ADD, params);
         }
     }
 
-    private void sendEvent(String eventName, String utteranceId) {
-        WritableMap params = Arguments.createMap();
-        params.putString("utteranceId", utteranceId);
-        sendEvent(eventName, params);
+    /**
+     * Plays the utterance from the audio cache, rendering it first if it was never spoken
+     * with the current settings. Rendering and playback are both queued on the engine, so
+     * the file is complete by the time the engine gets to playing it.
+     */
+    private int speakCached(EnginePool.Engine engine, VoiceSettings settings, String utterance, String utteranceId, Bundle params) {
+        TextToSpeech tts = engine.tts;
+        AudioCache cache = audioCache;
+        String key = audioKey(engine, settings, utterance);
+        File file = cache.get(key);
+        if(file == null) {
+            file = cache.begin(key);
+            cacheSegments(engine, settings, utteranceId);
+            // unique to the request, the same text may be rendered for another one meanwhile
+            String renderId = CACHE_UTTERANCE_PREFIX + key + "-" + utteranceId;
+            cacheRenders.put(renderId, key);
+            if(Build.VERSION.SDK_INT >= 26) {
+                renderTimings.put(renderId, new TimingIndex.Builder());
+            }
+            int result = tts.synthesizeToFile(utterance, new Bundle(), file, renderId);
+            if(result != TextToSpeech.SUCCESS) {
+                cacheRenders.remove(renderId);
+                renderTimings.remove(renderId);
+                cache.discard(key);
+                return tts.speak(utterance, TextToSpeech.QUEUE_ADD, params, utteranceId);
+            }
+        }
+        tts.addEarcon(key, file);
+        return tts.playEarcon(key, TextToSpeech.QUEUE_ADD, params, utteranceId);
+    }
+
+    /**
+     * Keeps the segments of the utterance with the cache for the word timings of its text to
+     * be found by them, once the first of them is rendered rather than every time it is spoken.
+     */
+    private void cacheSegments(EnginePool.Engine engine, VoiceSettings settings, String requestId) {
+        Utterance utterance = getUtterance(requestId);
+        if(utterance == null || utterance.boundsToCache == null) return;
+        audioCache.putSegments(audioKey(engine, settings, utterance.text), utterance.boundsToCache);
+        utterance.boundsToCache = null;
+    }
+
+    // identifies the audio of the text spoken by the engine with the settings
+    private static String audioKey(EnginePool.Engine engine, VoiceSettings settings, String text) {
+        return AudioCache.key(text, engine.name, settings.voice, settings.language, settings.rate, settings.pitch);
     }
 
     private void sendEvent(String eventName, WritableMap params) {
+        // events of utterances cancelled while the instance is being torn down have nobody to go to
+        if(!getReactApplicationContext().hasActiveCatalystInstance()) return;
         getReactApplicationContext()
                 .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
                 .emit(eventName, params);
     }
     
     @ReactMethod
-    public void removeListeners(Integer count) {
+    public void removeListeners(double count) {
         // Keep: Required for RN built in Event Emitter Calls.
     }
 
@@ -1,31 +1,47 @@
 package net.no_mad.tts;
 
-import com.facebook.react.ReactPackage;
-import com.facebook.react.bridge.JavaScriptModule;
+import com.facebook.react.TurboReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.uimanager.ViewManager;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
+import com.facebook.react.turbomodule.core.interfaces.TurboModule;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-public class TextToSpeechPackage implements ReactPackage {
+/**
+ * Creates the module only once JS first uses it. With the new architecture it is
+ * registered as a TurboModule, otherwise as a bridge module.
+ */
+public class TextToSpeechPackage extends TurboReactPackage {
 
   @Override
-  public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-    List<NativeModule> modules = new ArrayList<>();
-    modules.add(new TextToSpeechModule(reactContext));
-    return modules;
-  }
-
-  // Deprecated in RN 0.47
-  public List<Class<? extends JavaScriptModule>> createJSModules() {
-    return Collections.emptyList();
+  public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+    if (name.equals(TextToSpeechModule.NAME)) {
+      return new TextToSpeechModule(reactContext);
+    }
+    return null;
   }
 
   @Override
-  public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-    return Collections.emptyList();
+  public ReactModuleInfoProvider getReactModuleInfoProvider() {
+    return new ReactModuleInfoProvider() {
+      @Override
+      public Map<String, ReactModuleInfo> getReactModuleInfos() {
+        Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+        moduleInfos.put(TextToSpeechModule.NAME, new ReactModuleInfo(
+            TextToSpeechModule.NAME,
+            TextToSpeechModule.class.getName(),
+            false, // canOverrideExistingModule
+            false, // needsEagerInit
+            false, // hasConstants
+            false, // isCxxModule
+            // only the spec generated for the new architecture is a TurboModule
+            TurboModule.class.isAssignableFrom(TextToSpeechModule.class) // isTurboModule
+        ));
+        return moduleInfos;
+      }
+    };
   }
 }
@@ -0,0 +1,197 @@
+package net.no_mad.tts;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The word ranges the engine reported while rendering an utterance to a file, with the
+ * audio frame every word starts at, so that playback of the file can be followed without
+ * the engine.
+ *
+ * The file is a header of the magic, the sample rate, the number of frames of the audio
+ * and the number of ranges, followed by a (start, end, frame) triple of every range in
+ * frame order. All values are little endian ints.
+ */
+class TimingIndex {
+
+    static final String FILE_EXTENSION = ".timing";
+
+    private static final int MAGIC = 'T' | 'T' << 8 | 'S' << 16 | 'I' << 24;
+    private static final int HEADER_SIZE = 16;
+    private static final int RANGE_SIZE = 12;
+
+    final int sampleRate;
+    final long frameCount;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] frames;
+
+    private TimingIndex(int sampleRate, long frameCount, int[] starts, int[] ends, int[] frames) {
+        this.sampleRate = sampleRate;
+        this.frameCount = frameCount;
+        this.starts = starts;
+        this.ends = ends;
+        this.frames = frames;
+    }
+
+    /** Collects the ranges while the engine renders, they may be reported out of order. */
+    static class Builder {
+        // start, end and frame of every range
+        private int[] ranges = new int[3 * 16];
+        private int count = 0;
+
+        void add(int start, int end, int frame) {
+            if(count * 3 == ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            ranges[count * 3] = start;
+            ranges[count * 3 + 1] = end;
+            ranges[count * 3 + 2] = frame;
+            count++;
+        }
+
+        int size() {
+            return count;
+        }
+
+        /** Returns the index of the ranges for the audio of the rendered WAV file. */
+        TimingIndex build(File wav) throws IOException {
+            PcmReader reader = new PcmReader(wav);
+            int sampleRate = reader.sampleRate;
+            long frameCount = reader.size() / reader.blockAlign;
+            reader.close();
+
+            Integer[] order = new Integer[count];
+            for(int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Integer.compare(ranges[a * 3 + 2], ranges[b * 3 + 2]);
+                }
+            });
+            int[] starts = new int[count];
+            int[] ends = new int[count];
+            int[] frames = new int[count];
+            for(int i = 0; i < count; i++) {
+                starts[i] = ranges[order[i] * 3];
+                ends[i] = ranges[order[i] * 3 + 1];
+                frames[i] = ranges[order[i] * 3 + 2];
+            }
+            return new TimingIndex(sampleRate, frameCount, starts, ends, frames);
+        }
+
+        /** Writes the index for the audio of the rendered WAV file. */
+        void write(File file, File wav) throws IOException {
+            build(wav).write(file);
+        }
+    }
+
+    private void write(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + frames.length * RANGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(sampleRate);
+        buffer.putInt((int) frameCount);
+        buffer.putInt(frames.length);
+        for(int i = 0; i < frames.length; i++) {
+            buffer.putInt(starts[i]);
+            buffer.putInt(ends[i]);
+            buffer.putInt(frames[i]);
+        }
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(buffer.array());
+        } finally {
+            output.close();
+        }
+    }
+
+    static TimingIndex read(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            byte[] header = new byte[HEADER_SIZE];
+            input.readFully(header);
+            ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            if(buffer.getInt() != MAGIC) {
+                throw new IOException("Not a timing index: " + file);
+            }
+            int sampleRate = buffer.getInt();
+            long frameCount = buffer.getInt() & 0xffffffffL;
+            int count = buffer.getInt();
+            if(sampleRate <= 0 || count < 0 || file.length() != HEADER_SIZE + (long) count * RANGE_SIZE) {
+                throw new IOException("Corrupt timing index: " + file);
+            }
+            byte[] bytes = new byte[count * RANGE_SIZE];
+            input.readFully(bytes);
+            buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            int[] starts = new int[count];
+            int[] ends = new int[count];
+            int[] frames = new int[count];
+            for(int i = 0; i < count; i++) {
+                starts[i] = buffer.getInt();
+                ends[i] = buffer.getInt();
+                frames[i] = buffer.getInt();
+            }
+            return new TimingIndex(sampleRate, frameCount, starts, ends, frames);
+        } finally {
+            input.close();
+        }
+    }
+
+    int size() {
+        return frames.length;
+    }
+
+    int start(int range) {
+        return starts[range];
+    }
+
+    int end(int range) {
+        return ends[range];
+    }
+
+    int frame(int range) {
+        return frames[range];
+    }
+
+    /** Time the range starts at, in milliseconds from the start of the audio. */
+    double time(int range) {
+        return frames[range] * 1000.0 / sampleRate;
+    }
+
+    /** Length of the audio in milliseconds. */
+    double duration() {
+        return frameCount * 1000.0 / sampleRate;
+    }
+
+    /**
+     * Returns the range being spoken at the time in milliseconds from the start of the
+     * audio, the last one that starts at or before it, or -1 if it is before the first.
+     */
+    int find(double time) {
+        long frame = (long) Math.floor(time * sampleRate / 1000);
+        int low = 0;
+        int high = frames.length - 1;
+        int found = -1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            if(frames[middle] <= frame) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+}
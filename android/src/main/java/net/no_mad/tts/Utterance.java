@@ -0,0 +1,128 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.util.ArrayList;
+
+/**
+ * An utterance that has been accepted by speak() and has not finished yet.
+ *
+ * Long utterances are spoken as a sequence of segments, only a few of which are
+ * queued on the engine at a time. Every segment is queued with its own request id
+ * which the engine reports progress with. When the utterance is taken off the engine
+ * to be queued again later, its epoch changes, so that the late callbacks of the
+ * requests that were taken off can be told apart.
+ */
+class Utterance {
+
+    private static final char SEPARATOR = ':';
+
+    final String id;
+    final String text;
+    final ReadableMap params;
+    final int priority;
+    /** Resolved once the engine is done with the utterance, null when nobody waits for it. */
+    final Promise completion;
+    /** Completions of the utterances merged into this one by the admission filter, settled along with it. */
+    final ArrayList<Promise> mergedCompletions = new ArrayList<Promise>();
+    /** When the utterance was accepted, in SystemClock.elapsedRealtime() milliseconds. */
+    final long acceptedAt;
+    // how the text speak() was called with was rewritten into the text, null if it was not
+    TextNormalizer.Result normalization = null;
+    // the waiting utterance this one was merged into instead of being queued
+    Utterance mergedInto = null;
+    // engine the utterance is spoken with, and its voice, null for the engine's default
+    EnginePool.Engine engine;
+    String voice;
+    // when the first segment was queued, and the engine started on it and reported its first word
+    long enqueuedAt = 0;
+    long startedAt = 0;
+    long firstWordAt = 0;
+
+    // segment i spans the text from bounds[i] to bounds[i + 1]
+    int[] bounds;
+    // the bounds as split, to be kept with the audio cache once a segment is rendered to it, null once kept
+    int[] boundsToCache;
+    // index of the next segment to queue on the engine
+    int nextSegment = 0;
+    // segments queued on the engine that are not done yet
+    int queuedSegments = 0;
+    int epoch = 0;
+    // start of the last word the engine reported, as an offset into the text
+    int spokenOffset = -1;
+    boolean started = false;
+    // set while speak() queues the first segment, failures are then returned rather than reported
+    boolean accepting = false;
+    int errorCode = 0;
+
+    Utterance(String id, String text, ReadableMap params, int priority, Promise completion, long acceptedAt) {
+        this.id = id;
+        this.text = text;
+        this.params = params;
+        this.priority = priority;
+        this.completion = completion;
+        this.acceptedAt = acceptedAt;
+    }
+
+    int segmentCount() {
+        return bounds.length - 1;
+    }
+
+    String segmentText(int segment) {
+        return text.substring(bounds[segment], bounds[segment + 1]);
+    }
+
+    boolean isFullyQueued() {
+        return nextSegment == segmentCount();
+    }
+
+    boolean isDone() {
+        return isFullyQueued() && queuedSegments == 0;
+    }
+
+    String requestId(int segment) {
+        return id + SEPARATOR + epoch + SEPARATOR + segment;
+    }
+
+    /**
+     * Takes the queued segments back, so that they are queued again starting with the
+     * first one that is not done. If the engine reported progress within that segment,
+     * it is shortened to start at the last word spoken.
+     */
+    void rewind() {
+        int first = nextSegment - queuedSegments;
+        if(spokenOffset > bounds[first] && spokenOffset < bounds[first + 1]) {
+            bounds[first] = spokenOffset;
+        }
+        nextSegment = first;
+        queuedSegments = 0;
+        epoch++;
+    }
+
+    /** Returns true if the engine request was queued in the current epoch of the utterance. */
+    boolean isCurrent(String requestId) {
+        int first = requestId.indexOf(SEPARATOR);
+        int last = requestId.lastIndexOf(SEPARATOR);
+        return first != last && requestId.substring(first + 1, last).equals(Integer.toString(epoch));
+    }
+
+    /** Returns the id of the utterance the engine request belongs to. */
+    static String idOf(String requestId) {
+        int separator = requestId.indexOf(SEPARATOR);
+        return separator != -1 ? requestId.substring(0, separator) : requestId;
+    }
+
+    /** Returns the segment the engine request speaks, or -1 if it is not a segment request. */
+    static int segmentOf(String requestId) {
+        int separator = requestId.lastIndexOf(SEPARATOR);
+        if(separator == -1) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(requestId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
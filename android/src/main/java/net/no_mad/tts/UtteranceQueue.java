@@ -0,0 +1,125 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utterances waiting to be queued on the engine, one FIFO queue per priority level.
+ * Also keeps track of how long utterances of each priority had to wait.
+ *
+ * Not thread safe, the module only uses it on its engine thread.
+ */
+class UtteranceQueue {
+
+    static final int PRIORITY_LOW = 0;
+    static final int PRIORITY_NORMAL = 1;
+    static final int PRIORITY_HIGH = 2;
+
+    private static final String[] PRIORITY_NAMES = { "low", "normal", "high" };
+
+    private final ArrayList<ArrayDeque<Utterance>> levels = new ArrayList<ArrayDeque<Utterance>>();
+    private final long[] waitCount = new long[PRIORITY_NAMES.length];
+    private final long[] waitTotal = new long[PRIORITY_NAMES.length];
+    private final long[] waitMax = new long[PRIORITY_NAMES.length];
+    private long preemptions = 0;
+
+    UtteranceQueue() {
+        for(int i = 0; i < PRIORITY_NAMES.length; i++) {
+            levels.add(new ArrayDeque<Utterance>());
+        }
+    }
+
+    /** Returns the priority level for the name, or -1 if there is no such level. */
+    static int parsePriority(String name) {
+        for(int i = 0; i < PRIORITY_NAMES.length; i++) {
+            if(PRIORITY_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    void add(Utterance utterance) {
+        levels.get(utterance.priority).addLast(utterance);
+    }
+
+    /** Puts an interrupted utterance back in front of the others of its priority. */
+    void addFirst(Utterance utterance) {
+        levels.get(utterance.priority).addFirst(utterance);
+    }
+
+    /** Removes and returns the oldest utterance of the highest priority, or null. */
+    Utterance poll() {
+        for(int i = levels.size() - 1; i >= 0; i--) {
+            Utterance utterance = levels.get(i).poll();
+            if(utterance != null) {
+                return utterance;
+            }
+        }
+        return null;
+    }
+
+    /** Returns up to count utterances in the order poll() would return them, without removing them. */
+    List<Utterance> peek(int count) {
+        ArrayList<Utterance> utterances = new ArrayList<Utterance>(count);
+        for(int i = levels.size() - 1; i >= 0 && utterances.size() < count; i--) {
+            for(Utterance utterance: levels.get(i)) {
+                if(utterances.size() == count) {
+                    break;
+                }
+                utterances.add(utterance);
+            }
+        }
+        return utterances;
+    }
+
+    boolean remove(Utterance utterance) {
+        return levels.get(utterance.priority).remove(utterance);
+    }
+
+    int size() {
+        int size = 0;
+        for(ArrayDeque<Utterance> level: levels) {
+            size += level.size();
+        }
+        return size;
+    }
+
+    /** Removes all the utterances, highest priority first. */
+    List<Utterance> clear() {
+        ArrayList<Utterance> utterances = new ArrayList<Utterance>();
+        for(int i = levels.size() - 1; i >= 0; i--) {
+            utterances.addAll(levels.get(i));
+            levels.get(i).clear();
+        }
+        return utterances;
+    }
+
+    void recordWait(int priority, long wait) {
+        waitCount[priority]++;
+        waitTotal[priority] += wait;
+        waitMax[priority] = Math.max(waitMax[priority], wait);
+    }
+
+    void recordPreemption() {
+        preemptions++;
+    }
+
+    WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        for(int i = 0; i < PRIORITY_NAMES.length; i++) {
+            WritableMap level = Arguments.createMap();
+            level.putInt("depth", levels.get(i).size());
+            level.putDouble("count", waitCount[i]);
+            level.putDouble("averageWait", waitCount[i] > 0 ? (double) waitTotal[i] / waitCount[i] : 0);
+            level.putDouble("maxWait", waitMax[i]);
+            stats.putMap(PRIORITY_NAMES[i], level);
+        }
+        stats.putDouble("preemptions", preemptions);
+        return stats;
+    }
+}
@@ -0,0 +1,112 @@
+package net.no_mad.tts;
+
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.Voice;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Voices of an engine with everything the voice queries need precomputed,
+ * so that listing and looking up voices does not go through the engine.
+ */
+class VoiceCatalog {
+
+    private static class Entry {
+        final Voice voice;
+        final String language;
+        final boolean notInstalled;
+
+        Entry(Voice voice, String language) {
+            this.voice = voice;
+            this.language = language;
+            this.notInstalled = voice.getFeatures().contains(TextToSpeech.Engine.KEY_FEATURE_NOT_INSTALLED);
+        }
+    }
+
+    /** Voice filter, every field matches all voices when not set. */
+    static class Query {
+        String language = null;
+        int minQuality = Integer.MIN_VALUE;
+        int maxLatency = Integer.MAX_VALUE;
+        boolean offlineOnly = false;
+        boolean installedOnly = false;
+
+        static Query fromMap(ReadableMap filter) {
+            Query query = new Query();
+            if(filter.hasKey("language")) {
+                query.language = filter.getString("language");
+            }
+            if(filter.hasKey("minQuality")) {
+                query.minQuality = filter.getInt("minQuality");
+            }
+            if(filter.hasKey("maxLatency")) {
+                query.maxLatency = filter.getInt("maxLatency");
+            }
+            if(filter.hasKey("offlineOnly")) {
+                query.offlineOnly = filter.getBoolean("offlineOnly");
+            }
+            if(filter.hasKey("installedOnly")) {
+                query.installedOnly = filter.getBoolean("installedOnly");
+            }
+            return query;
+        }
+
+        private boolean matches(Entry entry) {
+            Voice voice = entry.voice;
+            if(language != null && !matchesLanguage(entry.language)) {
+                return false;
+            }
+            return voice.getQuality() >= minQuality
+                    && voice.getLatency() <= maxLatency
+                    && !(offlineOnly && voice.isNetworkConnectionRequired())
+                    && !(installedOnly && entry.notInstalled);
+        }
+
+        // "en" matches "en-US", "en-US" matches only "en-US"
+        private boolean matchesLanguage(String voiceLanguage) {
+            return voiceLanguage.regionMatches(true, 0, language, 0, language.length())
+                    && (voiceLanguage.length() == language.length() || voiceLanguage.charAt(language.length()) == '-');
+        }
+    }
+
+    private final ArrayList<Entry> entries = new ArrayList<Entry>();
+    private final HashMap<String, Voice> voicesByName = new HashMap<String, Voice>();
+
+    void add(Voice voice, String language) {
+        entries.add(new Entry(voice, language));
+        voicesByName.put(voice.getName(), voice);
+    }
+
+    Voice get(String name) {
+        return voicesByName.get(name);
+    }
+
+    WritableArray toArray(Query query) {
+        WritableArray voiceArray = Arguments.createArray();
+        for(Entry entry: entries) {
+            if(query == null || query.matches(entry)) {
+                voiceArray.pushMap(toMap(entry));
+            }
+        }
+        return voiceArray;
+    }
+
+    private static WritableMap toMap(Entry entry) {
+        Voice voice = entry.voice;
+        WritableMap voiceMap = Arguments.createMap();
+        voiceMap.putString("id", voice.getName());
+        voiceMap.putString("name", voice.getName());
+        voiceMap.putString("language", entry.language);
+        voiceMap.putInt("quality", voice.getQuality());
+        voiceMap.putInt("latency", voice.getLatency());
+        voiceMap.putBoolean("networkConnectionRequired", voice.isNetworkConnectionRequired());
+        voiceMap.putBoolean("notInstalled", entry.notInstalled);
+        return voiceMap;
+    }
+}
@@ -0,0 +1,106 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * The voice, language, rate and pitch an utterance is spoken with: those of its engine,
+ * unless the utterance's params have settings of their own.
+ *
+ * The voice takes precedence over the language, an utterance with a language of its own
+ * but no voice is spoken with the engine's voice for the language.
+ */
+final class VoiceSettings {
+
+    static final String VOICE = "voice";
+    static final String LANGUAGE = "language";
+    static final String RATE = "rate";
+    static final String PITCH = "pitch";
+
+    /** The settings of a newly created engine instance. */
+    static final VoiceSettings INITIAL = new VoiceSettings(null, null, 1.0f, 1.0f);
+
+    final String voice;
+    final String language;
+    final float rate;
+    final float pitch;
+
+    VoiceSettings(String voice, String language, float rate, float pitch) {
+        this.voice = voice;
+        this.language = language;
+        this.rate = rate;
+        this.pitch = pitch;
+    }
+
+    /** Returns the settings of the engine, overridden by those in the params. */
+    static VoiceSettings of(EnginePool.Engine engine, ReadableMap params) {
+        String voice = engine.voice;
+        String language = engine.language;
+        if(has(params, LANGUAGE)) {
+            language = params.getString(LANGUAGE);
+            voice = null;
+        }
+        if(has(params, VOICE)) {
+            voice = params.getString(VOICE);
+        }
+        float rate = has(params, RATE) ? toAndroidRate((float) params.getDouble(RATE)) : engine.rate;
+        float pitch = has(params, PITCH) ? (float) params.getDouble(PITCH) : engine.pitch;
+        return new VoiceSettings(voice, language, rate, pitch);
+    }
+
+    /**
+     * Converts a rate in the range of 0.0 to 1.0, where 0.5 is the normal rate, to the
+     * range Android expects, where 1.0 is the normal rate and 2.0 twice as fast.
+     */
+    static float toAndroidRate(float rate) {
+        return rate < 0.5f ?
+                rate * 2 : // linear fit {0, 0}, {0.25, 0.5}, {0.5, 1}
+                rate * 4 - 1; // linear fit {{0.5, 1}, {0.75, 2}, {1, 3}}
+    }
+
+    VoiceSettings withVoice(String voice) {
+        return new VoiceSettings(voice, language, rate, pitch);
+    }
+
+    /** Setting the language resets the voice. */
+    VoiceSettings withLanguage(String language) {
+        return new VoiceSettings(null, language, rate, pitch);
+    }
+
+    VoiceSettings withRate(float rate) {
+        return new VoiceSettings(voice, language, rate, pitch);
+    }
+
+    VoiceSettings withPitch(float pitch) {
+        return new VoiceSettings(voice, language, rate, pitch);
+    }
+
+    /** Returns true if the voice or the language differ, which are applied together. */
+    boolean voiceDiffers(VoiceSettings other) {
+        return !equals(voice, other.voice) || !equals(language, other.language);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof VoiceSettings)) {
+            return false;
+        }
+        VoiceSettings other = (VoiceSettings) o;
+        return !voiceDiffers(other) && rate == other.rate && pitch == other.pitch;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = voice != null ? voice.hashCode() : 0;
+        hash = 31 * hash + (language != null ? language.hashCode() : 0);
+        hash = 31 * hash + Float.floatToIntBits(rate);
+        return 31 * hash + Float.floatToIntBits(pitch);
+    }
+
+    private static boolean has(ReadableMap params, String key) {
+        return params.hasKey(key) && !params.isNull(key);
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,168 @@
+package net.no_mad.tts;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * Concatenates WAV files into one, streaming the samples through a fixed size buffer.
+ * All the files have to be in the format of the first one.
+ */
+class WavWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final RandomAccessFile output;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    // the fmt chunk of the first file, null until it is appended
+    private byte[] format = null;
+    private long dataSize = 0;
+
+    WavWriter(File file) throws IOException {
+        this.file = file;
+        file.getParentFile().mkdirs();
+        output = new RandomAccessFile(file, "rw");
+        output.setLength(0);
+    }
+
+    void append(File wav) throws IOException {
+        InputStream input = new FileInputStream(wav);
+        try {
+            readFully(input, buffer, 12);
+            if(!tagEquals(buffer, 0, "RIFF") || !tagEquals(buffer, 8, "WAVE")) {
+                throw new IOException("Not a WAV file: " + wav);
+            }
+            long remaining = wav.length() - 12;
+            while(remaining >= 8) {
+                readFully(input, buffer, 8);
+                remaining -= 8;
+                long chunkSize = readInt(buffer, 4) & 0xffffffffL;
+                if(tagEquals(buffer, 0, "fmt ")) {
+                    byte[] chunk = new byte[(int) chunkSize];
+                    readFully(input, chunk, chunk.length);
+                    remaining -= chunkSize;
+                    if(format == null) {
+                        writeHeader(chunk);
+                    } else if(!Arrays.equals(format, chunk)) {
+                        throw new IOException("The format of " + wav + " differs from the previous files");
+                    }
+                } else if(tagEquals(buffer, 0, "data")) {
+                    if(format == null) {
+                        throw new IOException("No format before the samples in " + wav);
+                    }
+                    // engines that stream the file may not know the size when writing the header
+                    long size = chunkSize == 0 || chunkSize > remaining ? remaining : chunkSize;
+                    // whole frames only, or the samples of the following files would be shifted
+                    int blockAlign = (format[12] & 0xff) | (format[13] & 0xff) << 8;
+                    if(blockAlign > 0) {
+                        size -= size % blockAlign;
+                    }
+                    copy(input, size);
+                    return;
+                } else {
+                    skipFully(input, chunkSize + (chunkSize & 1));
+                    remaining -= chunkSize + (chunkSize & 1);
+                }
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /** Writes the sizes into the header and closes the file. */
+    void close() throws IOException {
+        try {
+            if(format == null) {
+                // nothing was appended, write an empty mono 16 bit file
+                writeHeader(new byte[] { 1, 0, 1, 0, 0x40, 0x1f, 0, 0, (byte) 0x80, 0x3e, 0, 0, 2, 0, 16, 0 });
+            }
+            if((dataSize & 1) == 1) {
+                output.write(0);
+            }
+            output.seek(4);
+            writeInt(output, (int) (4 + 8 + format.length + 8 + dataSize + (dataSize & 1)));
+            output.seek(12 + 8 + format.length + 4);
+            writeInt(output, (int) dataSize);
+        } finally {
+            output.close();
+        }
+    }
+
+    /** Closes and deletes the file. */
+    void abort() {
+        try {
+            output.close();
+        } catch (IOException e) {
+            // deleted anyway
+        }
+        file.delete();
+    }
+
+    private void writeHeader(byte[] format) throws IOException {
+        this.format = format;
+        output.write(new byte[] { 'R', 'I', 'F', 'F' });
+        // sizes are written by close()
+        writeInt(output, 0);
+        output.write(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' });
+        writeInt(output, format.length);
+        output.write(format);
+        output.write(new byte[] { 'd', 'a', 't', 'a' });
+        writeInt(output, 0);
+    }
+
+    private void copy(InputStream input, long size) throws IOException {
+        while(size > 0) {
+            int read = input.read(buffer, 0, (int) Math.min(buffer.length, size));
+            if(read == -1) {
+                break;
+            }
+            output.write(buffer, 0, read);
+            dataSize += read;
+            size -= read;
+        }
+    }
+
+    private static boolean tagEquals(byte[] bytes, int offset, String tag) {
+        for(int i = 0; i < 4; i++) {
+            if(bytes[offset + i] != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    // little endian, unlike RandomAccessFile.writeInt()
+    private static void writeInt(RandomAccessFile output, int value) throws IOException {
+        output.write(new byte[] { (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24) });
+    }
+
+    private static void readFully(InputStream input, byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while(offset < length) {
+            int read = input.read(bytes, offset, length - offset);
+            if(read == -1) {
+                throw new IOException("Unexpected end of the WAV file");
+            }
+            offset += read;
+        }
+    }
+
+    private static void skipFully(InputStream input, long count) throws IOException {
+        while(count > 0) {
+            long skipped = input.skip(count);
+            if(skipped <= 0) {
+                throw new IOException("Unexpected end of the WAV file");
+            }
+            count -= skipped;
+        }
+    }
+}
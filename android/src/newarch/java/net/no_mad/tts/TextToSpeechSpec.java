@@ -0,0 +1,14 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * With the new architecture the module implements the TurboModule interface codegen
+ * generates from src/NativeTextToSpeech.js.
+ */
+abstract class TextToSpeechSpec extends NativeTextToSpeechSpec {
+
+    TextToSpeechSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
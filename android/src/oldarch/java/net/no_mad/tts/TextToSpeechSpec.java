@@ -0,0 +1,103 @@
+package net.no_mad.tts;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Without the new architecture the module is a bridge module. The methods are those codegen
+ * generates from src/NativeTextToSpeech.js, so that both builds check the module against
+ * the same spec.
+ */
+abstract class TextToSpeechSpec extends ReactContextBaseJavaModule {
+
+    TextToSpeechSpec(ReactApplicationContext context) {
+        super(context);
+    }
+
+    public abstract void getInitStatus(Promise promise);
+
+    public abstract void requestInstallEngine(Promise promise);
+
+    public abstract void requestInstallData(Promise promise);
+
+    public abstract void speak(String utterance, ReadableMap params, Promise promise);
+
+    public abstract void speakAndWait(String utterance, ReadableMap params, Promise promise);
+
+    public abstract void speakBatch(ReadableArray items, Promise promise);
+
+    public abstract void stop(Promise promise);
+
+    public abstract void pause(Promise promise);
+
+    public abstract void resume(Promise promise);
+
+    public abstract void setDucking(boolean enabled, Promise promise);
+
+    public abstract void setDuckingGracePeriod(double gracePeriod, Promise promise);
+
+    public abstract void setDefaultLanguage(String language, Promise promise);
+
+    public abstract void setDefaultRate(double rate, boolean skipTransform, Promise promise);
+
+    public abstract void setDefaultPitch(double pitch, Promise promise);
+
+    public abstract void setDefaultVoice(String voiceId, Promise promise);
+
+    public abstract void voices(Promise promise);
+
+    public abstract void queryVoices(ReadableMap filter, Promise promise);
+
+    public abstract void setDefaultEngine(String engineName, Promise promise);
+
+    public abstract void setEngineOptions(ReadableMap options, Promise promise);
+
+    public abstract void setLifecycleOptions(ReadableMap options, Promise promise);
+
+    public abstract void engines(Promise promise);
+
+    public abstract void setCacheOptions(ReadableMap options, Promise promise);
+
+    public abstract void getCacheStats(Promise promise);
+
+    public abstract void clearCache(Promise promise);
+
+    public abstract void getWordTimings(String text, ReadableMap options, Promise promise);
+
+    public abstract void lookupWordRange(String text, double position, ReadableMap options, Promise promise);
+
+    public abstract void setPreRenderOptions(ReadableMap options, Promise promise);
+
+    public abstract void exportToFile(String text, ReadableMap options, Promise promise);
+
+    public abstract void cancelExport(String exportId, Promise promise);
+
+    public abstract void synthesizeToBuffer(String text, ReadableMap options, Promise promise);
+
+    public abstract void cancelBuffer(String bufferId, Promise promise);
+
+    public abstract void setAdmissionOptions(ReadableMap options, Promise promise);
+
+    public abstract void setEventOptions(ReadableMap options, Promise promise);
+
+    public abstract void setSegmentationOptions(ReadableMap options, Promise promise);
+
+    public abstract void setNormalization(ReadableMap options, Promise promise);
+
+    public abstract void getNormalizationStats(Promise promise);
+
+    public abstract void getSchedulerStats(Promise promise);
+
+    public abstract void getMetrics(Promise promise);
+
+    public abstract void resetMetrics(Promise promise);
+
+    public abstract void setMetricsInterval(double interval, Promise promise);
+
+    public abstract void addListener(String eventName);
+
+    public abstract void removeListeners(double count);
+}
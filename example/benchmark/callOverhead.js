@@ -0,0 +1,49 @@
+/**
+ * Measures the per-call overhead of the module, to compare the TurboModule with the
+ * bridge module: run it in an app built with newArchEnabled=true and with false.
+ *
+ * The calls timed are answered on the thread they arrive on, so that what is measured
+ * is the cost of the call itself rather than the work of the engine.
+ *
+ * @flow
+ */
+
+import Tts from 'react-native-tts';
+
+const now = () => (global.performance ? global.performance.now() : Date.now());
+
+const CALLS = {
+  // a string argument, resolved with a boolean
+  cancelExport: () => Tts.cancelExport('none'),
+  // a map argument, decoded by the module
+  setEventOptions: () => Tts.setEventOptions({ mode: 'immediate' }),
+  // no argument, resolved with a nested map
+  getMetrics: () => Tts.getMetrics(),
+};
+
+async function measure(call, iterations) {
+  const times = [];
+  for (let i = 0; i < iterations; i++) {
+    const startedAt = now();
+    await call();
+    times.push((now() - startedAt) * 1000);
+  }
+  times.sort((a, b) => a - b);
+  const percentile = fraction => times[Math.min(times.length - 1, Math.floor(times.length * fraction))];
+  return {
+    mean: times.reduce((sum, time) => sum + time, 0) / times.length,
+    p50: percentile(0.5),
+    p99: percentile(0.99),
+  };
+}
+
+/** Resolves with the mean, p50 and p99 round trip of every call, in microseconds. */
+export default async function runCallOverheadBenchmark(iterations: number = 2000) {
+  const results = {};
+  for (const name of Object.keys(CALLS)) {
+    // warm up the JIT and the module's lazy initialization
+    await measure(CALLS[name], Math.min(200, iterations));
+    results[name] = await measure(CALLS[name], iterations);
+  }
+  return results;
+}
@@ -1,6 +1,12 @@
 import * as RN from "react-native";
 
-type SimpleEvents = "tts-start" | "tts-finish" | "tts-error" | "tts-cancel";
+type SimpleEvents =
+  | "tts-start"
+  | "tts-finish"
+  | "tts-error"
+  | "tts-cancel"
+  | "tts-pause"
+  | "tts-resume";
 type SimpleEvent = {
   utteranceId: string | number;
 };
@@ -12,10 +18,127 @@ type ProgressEvent = {
   length: number;
 };
 
-export type TtsEvents = SimpleEvents | ProgressEventName;
+type MetricsEventName = "tts-metrics";
+
+type ExportProgressEventName = "tts-export-progress";
+type ExportProgressEvent = {
+  exportId: string;
+  /** Number of segments written to the file so far */
+  segment: number;
+  segments: number;
+};
+
+type ExportFinishEventName = "tts-export-finish";
+type ExportFinishEvent = {
+  exportId: string;
+  path: string;
+};
+
+type ExportErrorEventName = "tts-export-error";
+type ExportErrorEvent = {
+  exportId: string;
+  message: string;
+};
+
+type ExportCancelEventName = "tts-export-cancel";
+type ExportCancelEvent = {
+  exportId: string;
+};
+
+type BufferStartEventName = "tts-buffer-start";
+type BufferStartEvent = {
+  bufferId: string;
+  sampleRate: number;
+  channels: number;
+  bitsPerSample: number;
+  /** "pcm_16bit", "pcm_8bit" or "pcm_float", little endian and interleaved */
+  encoding: string;
+  /** Size of the samples in bytes */
+  size: number;
+};
+
+type BufferDataEventName = "tts-buffer-data";
+type BufferDataEvent = {
+  bufferId: string;
+  /** Offset of the chunk within the samples in bytes */
+  offset: number;
+  /** The samples, base64 encoded */
+  data: string;
+};
+
+type BufferEndEventName = "tts-buffer-finish" | "tts-buffer-cancel";
+type BufferEndEvent = {
+  bufferId: string;
+};
+
+type BufferErrorEventName = "tts-buffer-error";
+type BufferErrorEvent = {
+  bufferId: string;
+  message: string;
+};
+
+type AdmissionEventName = "tts-merge" | "tts-drop";
+type AdmissionEvent = {
+  /** The utterance that is not going to be spoken */
+  utteranceId: string;
+  /** The waiting utterance it was merged into, or that replaced it */
+  into?: string;
+  reason: "duplicate" | "coalesced" | "rate_limited";
+  /** Totals since the module was loaded */
+  dropped: number;
+  merged: number;
+};
+
+type BatchEventName = "tts-batch";
+type BatchEvent = {
+  events: Array<
+    | ({ type: SimpleEvents } & SimpleEvent)
+    | ({ type: ProgressEventName } & ProgressEvent)
+    | ({ type: AdmissionEventName } & AdmissionEvent)
+  >;
+};
+
+export type TtsEvents =
+  | SimpleEvents
+  | ProgressEventName
+  | BatchEventName
+  | MetricsEventName
+  | ExportProgressEventName
+  | ExportFinishEventName
+  | ExportErrorEventName
+  | ExportCancelEventName
+  | BufferStartEventName
+  | BufferDataEventName
+  | BufferEndEventName
+  | BufferErrorEventName
+  | AdmissionEventName;
 export type TtsEvent<
   T extends TtsEvents = TtsEvents
-> = T extends ProgressEventName ? ProgressEvent : SimpleEvent;
+> = T extends ProgressEventName
+  ? ProgressEvent
+  : T extends BatchEventName
+  ? BatchEvent
+  : T extends MetricsEventName
+  ? Metrics
+  : T extends ExportProgressEventName
+  ? ExportProgressEvent
+  : T extends ExportFinishEventName
+  ? ExportFinishEvent
+  : T extends ExportErrorEventName
+  ? ExportErrorEvent
+  : T extends ExportCancelEventName
+  ? ExportCancelEvent
+  : T extends BufferStartEventName
+  ? BufferStartEvent
+  : T extends BufferDataEventName
+  ? BufferDataEvent
+  : T extends BufferEndEventName
+  ? BufferEndEvent
+  : T extends BufferErrorEventName
+  ? BufferErrorEvent
+  : T extends AdmissionEventName
+  ? AdmissionEvent
+  : SimpleEvent;
 export type TtsEventHandler<T extends TtsEvents = TtsEvents> = (
   event: TtsEvent<T>
 ) => any;
@@ -37,7 +160,9 @@ export type TtsError = {
     | "Android AudioManager error"
     | "not_available"
     | "not_found"
-    | "bad_rate";
+    | "bad_rate"
+    | "cancelled"
+    | "dropped";
   message: string;
 };
 
@@ -53,6 +178,17 @@ export type Voice = {
   notInstalled: boolean;
 };
 
+export type VoiceFilter = {
+  /** Either a language ("en") or a language with a region ("en-US") */
+  language?: string;
+  minQuality?: number;
+  maxLatency?: number;
+  /** Skip voices that require an active network connection */
+  offlineOnly?: boolean;
+  /** Skip voices that need to download additional data */
+  installedOnly?: boolean;
+};
+
 export type Engine = {
   name: string;
   label: string;
@@ -60,6 +196,64 @@ export type Engine = {
   icon: number;
 };
 
+export type PreRenderOptions = {
+  /** Render the next utterances to files while the current one is spoken */
+  enabled: boolean;
+  /** Number of waiting utterances rendered ahead, 2 by default */
+  count?: number;
+  /** Maximum size of the rendered files in bytes, 8 MB by default */
+  maxSize?: number;
+};
+
+/** Voice settings that differ from the defaults, as in the speak() options */
+export type VoiceOptions = {
+  voiceId?: string;
+  language?: string;
+  rate?: number;
+  pitch?: number;
+};
+
+export type ExportOptions = VoiceOptions & {
+  /** Path of the WAV file, a file in the cache directory by default */
+  path?: string;
+  /** Package name of the engine to render with, the default engine if not given */
+  engine?: string;
+  /** @deprecated Ignored, the engine renders one segment at a time */
+  parallelism?: number;
+  /** Maximum length of the segments the text is split into, 300 characters by default */
+  segmentLength?: number;
+};
+
+export type BufferOptions = VoiceOptions & {
+  /** Package name of the engine to render with, the default engine if not given */
+  engine?: string;
+  /** Size of the chunks of samples in bytes, 32 KB by default */
+  chunkSize?: number;
+};
+
+export type AdmissionOptions = {
+  /** Merge utterances into waiting ones with the same text, engine and priority */
+  dedupe?: boolean;
+  /** Utterances added to the queue per second, no limit by default */
+  rate?: number;
+  /** Utterances that may be added at once before the rate applies, the rate by default */
+  burst?: number;
+};
+
+export type EngineOptions = {
+  /** Number of initialized engines kept when they are not in use, 2 by default */
+  maxSize?: number;
+  /** Milliseconds an unused engine is kept initialized, 5 minutes by default */
+  idleTimeout?: number;
+};
+
+export type LifecycleOptions = {
+  /** Shut the engines down while the app is in the background, false by default */
+  releaseInBackground: boolean;
+  /** Milliseconds in the background without speaking before they are, 5 minutes by default */
+  backgroundTimeout?: number;
+};
+
 export type AndroidOptions = {
   /** Parameter key to specify the audio stream type to be used when speaking text or playing back a file */
   KEY_PARAM_STREAM:
@@ -77,12 +271,172 @@ export type AndroidOptions = {
   KEY_PARAM_PAN: number;
 };
 
+export type CacheOptions = {
+  /** Render utterances to files and play repeated ones from the cache */
+  enabled: boolean;
+  /** Maximum size of the cache in bytes, least recently used files are evicted first */
+  maxSize?: number;
+};
+
+export type CacheStats = {
+  enabled: boolean;
+  hits: number;
+  misses: number;
+  /** Total size of the cached files in bytes */
+  size: number;
+  count: number;
+};
+
+export type WordRange = {
+  /** Range of the word within the text */
+  start: number;
+  end: number;
+  /** Time the word starts at, in milliseconds from the start of the audio */
+  time: number;
+};
+
+export type WordTimings = {
+  /** Length of the audio in milliseconds */
+  duration: number;
+  ranges: WordRange[];
+};
+
+export type EventOptions = {
+  /** "immediate" sends every event as it happens, "batch" and "latest" buffer them into "tts-batch" events */
+  mode: "immediate" | "batch" | "latest";
+  /** How often buffered events are sent, in milliseconds */
+  interval?: number;
+  /** Send the buffered events early once there are this many of them */
+  maxBatchSize?: number;
+};
+
+export type SegmentationOptions = {
+  /** Split every utterance into sentences, not only those longer than the engine input limit */
+  enabled: boolean;
+  /** Maximum length of a segment, longer sentences are split at clause boundaries */
+  segmentLength?: number;
+  /** Number of segments queued on the engine ahead of time */
+  lookAhead?: number;
+};
+
+export type Priority = "low" | "normal" | "high";
+
+/** Latency distribution, all values are in milliseconds */
+export type Histogram = {
+  count: number;
+  mean: number;
+  max: number;
+  p50: number;
+  p90: number;
+  p99: number;
+};
+
+export type UtteranceMetrics = {
+  engine: string;
+  voice: string;
+  /** From speak() to queueing on the engine */
+  queueWait: Histogram;
+  /** From speak() to the engine starting on the utterance */
+  timeToFirstAudio: Histogram;
+  /** From speak() to the first word reported by the engine */
+  timeToFirstWord: Histogram;
+  /** From the engine starting on the utterance to finishing it */
+  duration: Histogram;
+  errors: number;
+  cancellations: number;
+};
+
+export type Metrics = {
+  /** Engine initialization time, by engine name */
+  engineInit: Record<string, Histogram>;
+  utterances: UtteranceMetrics[];
+  /** Time from an engine failing to it being restarted, by engine name */
+  recoveries: Record<string, Histogram>;
+  /** Engines given up on after failing to restart */
+  recoveryFailures: number;
+  /** Time from a released engine being used again to it being initialized, by engine name */
+  restores: Record<string, Histogram>;
+  /** Times the engines were released in the background */
+  releases: number;
+  /** Bytes the app's memory shrank by when the engines were released */
+  memoryReleased: number;
+};
+
 export type Options =
   | string
   | {
       iosVoiceId: string;
+      /** Speech rate of this utterance, in the range of setDefaultRate() */
       rate: number;
       androidParams: AndroidOptions;
+      /** Voice of this utterance instead of the default one (Android only) */
+      voiceId?: string;
+      /** Language of this utterance instead of the default one, spoken with the engine's voice for it (Android only) */
+      language?: string;
+      /** Pitch of this utterance instead of the default one (Android only) */
+      pitch?: number;
+      /** Order in the queue, "high" utterances interrupt lower priority ones (Android only) */
+      priority?: Priority;
+      /** Package name of the engine to speak with instead of the default one (Android only) */
+      engine?: string;
+      /** Replaces the waiting utterance with the same key, if any (Android only) */
+      coalesceKey?: string;
+    };
+
+export type PriorityStats = {
+  /** Utterances of this priority waiting to be spoken */
+  depth: number;
+  /** Utterances of this priority that started speaking */
+  count: number;
+  /** Average time between speak() and start of speaking, in milliseconds */
+  averageWait: number;
+  maxWait: number;
+};
+
+export type AdmissionStats = {
+  dropped: number;
+  merged: number;
+  coalesced: number;
+};
+
+export type SchedulerStats = Record<Priority, PriorityStats> & {
+  preemptions: number;
+  admission: AdmissionStats;
+};
+
+export type NormalizationRule = {
+  /** A RegExp or the source of a Java regular expression */
+  pattern: RegExp | string;
+  /** $1 and on stand for the groups of the pattern */
+  replacement: string;
+};
+
+export type NormalizationOptions = {
+  /** Phrases and how they are spoken, only whole words are replaced */
+  lexicon?: Record<string, string>;
+  rules?: NormalizationRule[];
+  /** Match the phrases and rules regardless of case, false by default */
+  ignoreCase?: boolean;
+  /** Number of normalized texts kept for texts spoken again, 256 by default */
+  memoSize?: number;
+};
+
+export type NormalizationStats = {
+  entries: number;
+  rules: number;
+  /** Time it took to compile the lexicon and rules, in milliseconds */
+  compileTime: number;
+  hits: number;
+  misses: number;
+  /** Time it takes to normalize an utterance, in microseconds */
+  normalizeTime: Histogram;
+};
+
+export type BatchItem =
+  | string
+  | {
+      utterance: string;
+      options?: Options;
     };
 
 export class ReactNativeTts extends RN.NativeEventEmitter {
@@ -90,16 +444,46 @@ export class ReactNativeTts extends RN.NativeEventEmitter {
   requestInstallEngine: () => Promise<"success">;
   requestInstallData: () => Promise<"success">;
   setDucking: (enabled: boolean) => Promise<"success">;
+  setDuckingGracePeriod: (gracePeriod: number) => Promise<"success">;
   setDefaultEngine: (engineName: string) => Promise<boolean>;
+  setEngineOptions: (options: EngineOptions) => Promise<"success">;
+  setLifecycleOptions: (options: LifecycleOptions) => Promise<"success">;
   setDefaultVoice: (voiceId: string) => Promise<"success">;
   setDefaultRate: (rate: number, skipTransform?: boolean) => Promise<"success">;
   setDefaultPitch: (pitch: number) => Promise<"success">;
   setDefaultLanguage: (language: string) => Promise<"success">;
   setIgnoreSilentSwitch: (ignoreSilentSwitch: IOSSilentSwitchBehavior) => Promise<boolean>;
-  voices: () => Promise<Voice[]>;
+  voices: (filter?: VoiceFilter) => Promise<Voice[]>;
   engines: () => Promise<Engine[]>;
   /** Read the sentence and return an id for the task. */
   speak: (utterance: string, options?: Options) => string | number;
+  setCacheOptions: (options: CacheOptions) => Promise<"success">;
+  getCacheStats: () => Promise<CacheStats>;
+  clearCache: () => Promise<"success">;
+  /** Resolve with the word timings of the cached text, or null if it has none. */
+  getWordTimings: (text: string, options?: Options) => Promise<WordTimings | null>;
+  /** Resolve with the word of the cached text spoken at the position in milliseconds. */
+  lookupWordRange: (text: string, position: number, options?: Options) => Promise<WordRange | null>;
+  setPreRenderOptions: (options: PreRenderOptions) => Promise<"success">;
+  setAdmissionOptions: (options: AdmissionOptions) => Promise<"success">;
+  /** Export the text to a WAV file and resolve with the id of the export. */
+  exportToFile: (text: string, options?: ExportOptions) => Promise<string>;
+  cancelExport: (exportId: string) => Promise<boolean>;
+  /** Render the text and stream its samples in events, resolve with the id of the buffer. */
+  synthesizeToBuffer: (text: string, options?: BufferOptions) => Promise<string>;
+  cancelBuffer: (bufferId: string) => Promise<boolean>;
+  /** Read the sentence and resolve with the id of the task once it has been spoken. */
+  speakAndWait: (utterance: string, options?: Options) => Promise<string | number>;
+  /** Read all the sentences in order and return the ids of the tasks. */
+  speakBatch: (items: BatchItem[]) => Promise<Array<string | number>>;
+  setEventOptions: (options: EventOptions) => Promise<"success">;
+  setSegmentationOptions: (options: SegmentationOptions) => Promise<"success">;
+  setNormalization: (options: NormalizationOptions) => Promise<"success">;
+  getNormalizationStats: () => Promise<NormalizationStats | null>;
+  getSchedulerStats: () => Promise<SchedulerStats | null>;
+  getMetrics: () => Promise<Metrics | null>;
+  resetMetrics: () => Promise<"success">;
+  setMetricsInterval: (interval: number) => Promise<"success">;
   stop: (onWordBoundary?: boolean) => Promise<boolean>;
   pause: (onWordBoundary?: boolean) => Promise<boolean>;
   resume: () => Promise<boolean>;
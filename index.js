@@ -1,6 +1,76 @@
 import { NativeModules, NativeEventEmitter, Platform } from 'react-native';
+import NativeTextToSpeech from './src/NativeTextToSpeech';
 
-const TextToSpeech = NativeModules.TextToSpeech;
+// the typed TurboModule on Android, which is the bridge module without the new architecture
+const TextToSpeech = Platform.OS === 'android' ? NativeTextToSpeech : NativeModules.TextToSpeech;
+
+function voiceParams(options) {
+  const params = {};
+  if (options.voiceId) {
+    params.voice = options.voiceId;
+  }
+  if (options.language) {
+    params.language = options.language;
+  }
+  if (options.rate !== undefined) {
+    params.rate = options.rate;
+  }
+  if (options.pitch !== undefined) {
+    params.pitch = options.pitch;
+  }
+  return params;
+}
+
+function androidParams(options) {
+  if (!options || typeof options !== 'object') {
+    return {};
+  }
+  const params = Object.assign({}, options.androidParams, voiceParams(options));
+  if (options.priority) {
+    params.priority = options.priority;
+  }
+  if (options.engine) {
+    params.engine = options.engine;
+  }
+  if (options.coalesceKey) {
+    params.coalesceKey = options.coalesceKey;
+  }
+  return params;
+}
+
+function normalizationRule(rule) {
+  const pattern = rule.pattern;
+  if (pattern instanceof RegExp) {
+    return {
+      pattern: (pattern.ignoreCase ? '(?i)' : '') + pattern.source,
+      replacement: rule.replacement
+    };
+  }
+  return rule;
+}
+
+function matchesVoiceFilter(voice, filter) {
+  if (filter.language) {
+    const language = voice.language.toLowerCase();
+    const wanted = filter.language.toLowerCase();
+    if (language !== wanted && language.indexOf(wanted + '-') !== 0) {
+      return false;
+    }
+  }
+  if (filter.minQuality !== undefined && voice.quality < filter.minQuality) {
+    return false;
+  }
+  if (filter.maxLatency !== undefined && voice.latency !== undefined && voice.latency > filter.maxLatency) {
+    return false;
+  }
+  if (filter.offlineOnly && voice.networkConnectionRequired) {
+    return false;
+  }
+  if (filter.installedOnly && voice.notInstalled) {
+    return false;
+  }
+  return true;
+}
 
 class Tts extends NativeEventEmitter {
   constructor() {
@@ -35,6 +105,13 @@ class Tts extends NativeEventEmitter {
     return TextToSpeech.setDucking(enabled);
   }
 
+  setDuckingGracePeriod(gracePeriod) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.setDuckingGracePeriod(gracePeriod);
+  }
+
   setDefaultEngine(engineName) {
     if (Platform.OS === 'ios' || Platform.OS === 'windows') {
       return Promise.resolve(true);
@@ -42,6 +119,20 @@ class Tts extends NativeEventEmitter {
     return TextToSpeech.setDefaultEngine(engineName);
   }
 
+  setEngineOptions(options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.setEngineOptions(options);
+  }
+
+  setLifecycleOptions(options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.setLifecycleOptions(options);
+  }
+
   setDefaultVoice(voiceId) {
     return TextToSpeech.setDefaultVoice(voiceId);
   }
@@ -65,8 +156,16 @@ class Tts extends NativeEventEmitter {
     return Promise.resolve(true);
   }
 
-  voices() {
-    return TextToSpeech.voices();
+  voices(filter) {
+    if (!filter) {
+      return TextToSpeech.voices();
+    }
+    if (Platform.OS === 'android') {
+      return TextToSpeech.queryVoices(filter);
+    }
+    return TextToSpeech.voices().then(voices =>
+      voices.filter(voice => matchesVoiceFilter(voice, filter))
+    );
   }
 
   engines() {
@@ -88,11 +187,204 @@ class Tts extends NativeEventEmitter {
       if (Platform.OS === 'ios' || Platform.OS === 'windows') {
         return TextToSpeech.speak(utterance, options);
       } else {
-        return TextToSpeech.speak(utterance, options.androidParams || {});
+        return TextToSpeech.speak(utterance, androidParams(options));
       }
     }
   }
 
+  setCacheOptions(options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.setCacheOptions(options);
+  }
+
+  getCacheStats() {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve({ enabled: false, hits: 0, misses: 0, size: 0, count: 0 });
+    }
+    return TextToSpeech.getCacheStats();
+  }
+
+  clearCache() {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.clearCache();
+  }
+
+  getWordTimings(text, options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(null);
+    }
+    return TextToSpeech.getWordTimings(text, androidParams(options));
+  }
+
+  lookupWordRange(text, position, options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(null);
+    }
+    return TextToSpeech.lookupWordRange(text, position, androidParams(options));
+  }
+
+  setAdmissionOptions(options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.setAdmissionOptions(options);
+  }
+
+  setPreRenderOptions(options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.setPreRenderOptions(options);
+  }
+
+  exportToFile(text, options = {}) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.reject({ code: 'not_available', message: 'Exporting to a file is only supported on Android' });
+    }
+    return TextToSpeech.exportToFile(text, Object.assign({}, options, voiceParams(options)));
+  }
+
+  cancelExport(exportId) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(false);
+    }
+    return TextToSpeech.cancelExport(exportId);
+  }
+
+  synthesizeToBuffer(text, options = {}) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.reject({ code: 'not_available', message: 'Synthesizing to a buffer is only supported on Android' });
+    }
+    return TextToSpeech.synthesizeToBuffer(text, Object.assign({}, options, voiceParams(options)));
+  }
+
+  cancelBuffer(bufferId) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(false);
+    }
+    return TextToSpeech.cancelBuffer(bufferId);
+  }
+
+  speakAndWait(utterance, options = {}) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return new Promise((resolve, reject) => {
+        const subscriptions = [];
+        let utteranceId = null;
+        // events that arrive before speak() resolves, a short utterance may be over by then
+        let early = [];
+        let settled = false;
+        const settle = (type, event) => {
+          if (utteranceId === null) {
+            early.push({ type, event });
+            return;
+          }
+          if (settled || event.utteranceId !== utteranceId) {
+            return;
+          }
+          settled = true;
+          subscriptions.forEach(subscription => subscription.remove());
+          if (type === 'tts-finish') {
+            resolve(utteranceId);
+          } else {
+            reject({ code: 'cancelled', message: 'The utterance was stopped before it finished' });
+          }
+        };
+        subscriptions.push(this.addListener('tts-finish', event => settle('tts-finish', event)));
+        subscriptions.push(this.addListener('tts-cancel', event => settle('tts-cancel', event)));
+        Promise.resolve(this.speak(utterance, options)).then(id => {
+          utteranceId = id;
+          early.forEach(({ type, event }) => settle(type, event));
+          early = [];
+        }, error => {
+          subscriptions.forEach(subscription => subscription.remove());
+          reject(error);
+        });
+      });
+    }
+    return TextToSpeech.speakAndWait(utterance, androidParams(options));
+  }
+
+  speakBatch(items) {
+    const normalized = items.map(item =>
+      typeof item === 'string' ? { utterance: item, options: {} } : item
+    );
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.all(
+        normalized.map(item => this.speak(item.utterance, item.options))
+      );
+    }
+    return TextToSpeech.speakBatch(
+      normalized.map(item => ({
+        utterance: item.utterance,
+        params: androidParams(item.options),
+      }))
+    );
+  }
+
+  setEventOptions(options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.setEventOptions(options);
+  }
+
+  setSegmentationOptions(options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.setSegmentationOptions(options);
+  }
+
+  setNormalization(options) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    const params = Object.assign({}, options);
+    if (params.rules) {
+      params.rules = params.rules.map(normalizationRule);
+    }
+    return TextToSpeech.setNormalization(params);
+  }
+
+  getNormalizationStats() {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(null);
+    }
+    return TextToSpeech.getNormalizationStats();
+  }
+
+  getSchedulerStats() {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(null);
+    }
+    return TextToSpeech.getSchedulerStats();
+  }
+
+  getMetrics() {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(null);
+    }
+    return TextToSpeech.getMetrics();
+  }
+
+  resetMetrics() {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.resetMetrics();
+  }
+
+  setMetricsInterval(interval) {
+    if (Platform.OS === 'ios' || Platform.OS === 'windows') {
+      return Promise.resolve(true);
+    }
+    return TextToSpeech.setMetricsInterval(interval);
+  }
+
   stop(onWordBoundary) {
     if (Platform.OS === 'ios') {
       return TextToSpeech.stop(onWordBoundary);
@@ -104,12 +396,14 @@ class Tts extends NativeEventEmitter {
   pause(onWordBoundary) {
     if (Platform.OS === 'ios') {
       return TextToSpeech.pause(onWordBoundary);
+    } else if (Platform.OS === 'android') {
+      return TextToSpeech.pause();
     }
     return Promise.resolve(false);
   }
 
   resume() {
-    if (Platform.OS === 'ios') {
+    if (Platform.OS === 'ios' || Platform.OS === 'android') {
       return TextToSpeech.resume();
     }
     return Promise.resolve(false);
@@ -0,0 +1,219 @@
+/**
+ * Typed spec of the Android module, the source of the TurboModule interface generated
+ * by React Native's codegen. It mirrors the Android part of index.d.ts, with the params
+ * as index.js passes them to the module: voiceId is passed as voice, and the speak()
+ * options are flattened into a single map with the androidParams.
+ *
+ * The object types are checked on the JS side and become structs of the C++ interface.
+ * The Java interface codegen generates takes them as ReadableMap all the same, so the
+ * module still reads their fields by key.
+ *
+ * @flow strict-local
+ */
+
+import type { TurboModule } from 'react-native/Libraries/TurboModule/RCTExport';
+import * as TurboModuleRegistry from 'react-native/Libraries/TurboModule/TurboModuleRegistry';
+
+type SpeakParams = $ReadOnly<{|
+  voice?: ?string,
+  language?: ?string,
+  rate?: ?number,
+  pitch?: ?number,
+  KEY_PARAM_STREAM?: ?string,
+  KEY_PARAM_VOLUME?: ?number,
+  KEY_PARAM_PAN?: ?number,
+  // "low", "normal" or "high"
+  priority?: ?string,
+  engine?: ?string,
+  coalesceKey?: ?string,
+|}>;
+
+type BatchItem = $ReadOnly<{|
+  utterance: string,
+  params?: ?SpeakParams,
+|}>;
+
+type Voice = $ReadOnly<{|
+  id: string,
+  name: string,
+  language: string,
+  quality: number,
+  latency: number,
+  networkConnectionRequired: boolean,
+  notInstalled: boolean,
+|}>;
+
+type VoiceFilter = $ReadOnly<{|
+  language?: ?string,
+  minQuality?: ?number,
+  maxLatency?: ?number,
+  offlineOnly?: ?boolean,
+  installedOnly?: ?boolean,
+|}>;
+
+type Engine = $ReadOnly<{|
+  name: string,
+  label: string,
+  default: boolean,
+  icon: number,
+|}>;
+
+type EngineOptions = $ReadOnly<{|
+  maxSize?: ?number,
+  idleTimeout?: ?number,
+|}>;
+
+type LifecycleOptions = $ReadOnly<{|
+  releaseInBackground: boolean,
+  backgroundTimeout?: ?number,
+|}>;
+
+type CacheOptions = $ReadOnly<{|
+  enabled: boolean,
+  maxSize?: ?number,
+|}>;
+
+type CacheStats = $ReadOnly<{|
+  enabled: boolean,
+  hits: number,
+  misses: number,
+  size: number,
+  count: number,
+|}>;
+
+type WordRange = $ReadOnly<{|
+  start: number,
+  end: number,
+  time: number,
+|}>;
+
+type WordTimings = $ReadOnly<{|
+  duration: number,
+  ranges: $ReadOnlyArray<WordRange>,
+|}>;
+
+type PreRenderOptions = $ReadOnly<{|
+  enabled: boolean,
+  count?: ?number,
+  maxSize?: ?number,
+|}>;
+
+type ExportOptions = $ReadOnly<{|
+  voice?: ?string,
+  language?: ?string,
+  rate?: ?number,
+  pitch?: ?number,
+  path?: ?string,
+  engine?: ?string,
+  // ignored, kept for the apps that still pass it
+  parallelism?: ?number,
+  segmentLength?: ?number,
+|}>;
+
+type BufferOptions = $ReadOnly<{|
+  voice?: ?string,
+  language?: ?string,
+  rate?: ?number,
+  pitch?: ?number,
+  engine?: ?string,
+  chunkSize?: ?number,
+|}>;
+
+type AdmissionOptions = $ReadOnly<{|
+  dedupe?: ?boolean,
+  rate?: ?number,
+  burst?: ?number,
+|}>;
+
+type EventOptions = $ReadOnly<{|
+  // "immediate", "batch" or "latest"
+  mode: string,
+  interval?: ?number,
+  maxBatchSize?: ?number,
+|}>;
+
+type SegmentationOptions = $ReadOnly<{|
+  enabled: boolean,
+  segmentLength?: ?number,
+  lookAhead?: ?number,
+|}>;
+
+type NormalizationRule = $ReadOnly<{|
+  // the source of a Java regular expression, index.js converts RegExps
+  pattern: string,
+  replacement: string,
+|}>;
+
+type NormalizationOptions = $ReadOnly<{|
+  // phrase -> how it is spoken, codegen has no type for maps with arbitrary keys
+  lexicon?: ?Object,
+  rules?: ?$ReadOnlyArray<NormalizationRule>,
+  ignoreCase?: ?boolean,
+  memoSize?: ?number,
+|}>;
+
+type NormalizationStats = $ReadOnly<{|
+  entries: number,
+  rules: number,
+  compileTime: number,
+  hits: number,
+  misses: number,
+  normalizeTime: Object,
+|}>;
+
+export interface Spec extends TurboModule {
+  getInitStatus(): Promise<string>;
+  requestInstallEngine(): Promise<string>;
+  requestInstallData(): Promise<string>;
+
+  speak(utterance: string, params: SpeakParams): Promise<string>;
+  speakAndWait(utterance: string, params: SpeakParams): Promise<string>;
+  speakBatch(items: $ReadOnlyArray<BatchItem>): Promise<$ReadOnlyArray<string>>;
+  stop(): Promise<boolean>;
+  pause(): Promise<boolean>;
+  resume(): Promise<boolean>;
+
+  setDucking(enabled: boolean): Promise<string>;
+  setDuckingGracePeriod(gracePeriod: number): Promise<string>;
+  setDefaultLanguage(language: string): Promise<string>;
+  setDefaultRate(rate: number, skipTransform: boolean): Promise<string>;
+  setDefaultPitch(pitch: number): Promise<string>;
+  setDefaultVoice(voiceId: string): Promise<string>;
+  voices(): Promise<$ReadOnlyArray<Voice>>;
+  queryVoices(filter: VoiceFilter): Promise<$ReadOnlyArray<Voice>>;
+
+  setDefaultEngine(engineName: string): Promise<boolean>;
+  setEngineOptions(options: EngineOptions): Promise<string>;
+  setLifecycleOptions(options: LifecycleOptions): Promise<string>;
+  engines(): Promise<$ReadOnlyArray<Engine>>;
+
+  setCacheOptions(options: CacheOptions): Promise<string>;
+  getCacheStats(): Promise<CacheStats>;
+  clearCache(): Promise<string>;
+  getWordTimings(text: string, options: SpeakParams): Promise<?WordTimings>;
+  lookupWordRange(text: string, position: number, options: SpeakParams): Promise<?WordRange>;
+  setPreRenderOptions(options: PreRenderOptions): Promise<string>;
+
+  exportToFile(text: string, options: ExportOptions): Promise<string>;
+  cancelExport(exportId: string): Promise<boolean>;
+  synthesizeToBuffer(text: string, options: BufferOptions): Promise<string>;
+  cancelBuffer(bufferId: string): Promise<boolean>;
+
+  setAdmissionOptions(options: AdmissionOptions): Promise<string>;
+  setEventOptions(options: EventOptions): Promise<string>;
+  setSegmentationOptions(options: SegmentationOptions): Promise<string>;
+  setNormalization(options: NormalizationOptions): Promise<string>;
+  getNormalizationStats(): Promise<?NormalizationStats>;
+  // keyed by priority and by engine name, which codegen has no type for
+  getSchedulerStats(): Promise<Object>;
+
+  getMetrics(): Promise<Object>;
+  resetMetrics(): Promise<string>;
+  setMetricsInterval(interval: number): Promise<string>;
+
+  addListener(eventName: string): void;
+  removeListeners(count: number): void;
+}
+
+// falls back to the bridge module when the new architecture is not enabled
+export default (TurboModuleRegistry.get<Spec>('TextToSpeech'): ?Spec);